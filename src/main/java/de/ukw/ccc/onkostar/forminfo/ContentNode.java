@@ -0,0 +1,55 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Comprehensive Cancer Center Mainfranken
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.ukw.ccc.onkostar.forminfo;
+
+import java.util.List;
+
+/**
+ * Result datatype of a SECTION or GROUP entry in hierarchical content.
+ * Children are only contained if the node has been loaded, use the number of child entries
+ * to decide whether a node not yet loaded can be expanded.
+ *
+ * @author Paul-Christian Volkmer
+ * @since 0.2.0
+ */
+public class ContentNode extends Result {
+    public final boolean loaded;
+    public final int childCount;
+    public final List<Result> children;
+
+    public ContentNode(Result result, int childCount) {
+        super(result.field, result.description, result.value, result.type);
+        this.loaded = false;
+        this.childCount = childCount;
+        this.children = null;
+    }
+
+    public ContentNode(Result result, int childCount, List<Result> children) {
+        super(result.field, result.description, result.value, result.type);
+        this.loaded = true;
+        this.childCount = childCount;
+        this.children = List.copyOf(children);
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Comprehensive Cancer Center Mainfranken
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.ukw.ccc.onkostar.forminfo;
+
+import java.util.List;
+
+/**
+ * Result datatype to hold the content of a form and its fingerprint.
+ * The content is omitted if it has not been modified.
+ *
+ * @author Paul-Christian Volkmer
+ * @since 0.2.0
+ */
+public class ContentResult {
+    public final String fingerprint;
+    public final boolean notModified;
+    public final List<Result> content;
+
+    private ContentResult(String fingerprint, boolean notModified, List<Result> content) {
+        this.fingerprint = fingerprint;
+        this.notModified = notModified;
+        this.content = content;
+    }
+
+    public static ContentResult modified(String fingerprint, List<Result> content) {
+        return new ContentResult(fingerprint, false, content);
+    }
+
+    public static ContentResult notModified(String fingerprint) {
+        return new ContentResult(fingerprint, true, null);
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Comprehensive Cancer Center Mainfranken
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.ukw.ccc.onkostar.forminfo;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Options to filter the content of requested forms.
+ * Use {@link #builder()} to create new options.
+ *
+ * @author Paul-Christian Volkmer
+ * @since 0.2.0
+ */
+public class FormInfoOptions {
+
+    public static final FormInfoOptions DEFAULT = builder().build();
+
+    /**
+     * Types of fields to be included. All types are included if empty.
+     */
+    public final Set<Type> includedTypes;
+
+    /**
+     * Types of fields to be excluded
+     */
+    public final Set<Type> excludedTypes;
+
+    /**
+     * Names of fields to be included. All fields are included if empty.
+     */
+    public final Set<String> fieldNames;
+
+    /**
+     * Skip fields without value. Fields of type GROUP, SECTION and SUBFORM are not affected.
+     */
+    public final boolean skipEmptyValues;
+
+    /**
+     * Depth of sub forms to be inlined into SUBFORM entries. Sub forms are not inlined if zero.
+     */
+    public final int subFormDepth;
+
+    /**
+     * Replace IDs of referenced procedures in FORM_REFERENCE entries by compact summaries
+     */
+    public final boolean resolveReferences;
+
+    private FormInfoOptions(Builder builder) {
+        this.includedTypes = Set.copyOf(builder.includedTypes);
+        this.excludedTypes = Set.copyOf(builder.excludedTypes);
+        this.fieldNames = Set.copyOf(builder.fieldNames);
+        this.skipEmptyValues = builder.skipEmptyValues;
+        this.subFormDepth = builder.subFormDepth;
+        this.resolveReferences = builder.resolveReferences;
+    }
+
+    /**
+     * Checks if field with given name and type is requested
+     *
+     * @param name The name of the field
+     * @param type The type of the field
+     * @return true if field is requested
+     */
+    public boolean isRequested(String name, Type type) {
+        return (includedTypes.isEmpty() || includedTypes.contains(type))
+                && !excludedTypes.contains(type)
+                && (fieldNames.isEmpty() || fieldNames.contains(name));
+    }
+
+    /**
+     * Checks if all fields are requested
+     *
+     * @return true if no field will be filtered
+     */
+    public boolean isUnfiltered() {
+        return includedTypes.isEmpty() && excludedTypes.isEmpty() && fieldNames.isEmpty();
+    }
+
+    /**
+     * Returns a stable key representing these options
+     *
+     * @return The key of these options
+     */
+    public String key() {
+        return String.join(",", new TreeSet<>(includedTypes.stream().map(Enum::name).collect(Collectors.toSet())))
+                + ";" + String.join(",", new TreeSet<>(excludedTypes.stream().map(Enum::name).collect(Collectors.toSet())))
+                + ";" + String.join(",", new TreeSet<>(fieldNames))
+                + ";" + skipEmptyValues
+                + ";" + subFormDepth
+                + ";" + resolveReferences;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns a new builder initialized with these options
+     *
+     * @return The builder
+     */
+    public Builder toBuilder() {
+        return new Builder()
+                .includeTypes(includedTypes)
+                .excludeTypes(excludedTypes)
+                .fieldNames(fieldNames)
+                .skipEmptyValues(skipEmptyValues)
+                .subFormDepth(subFormDepth)
+                .resolveReferences(resolveReferences);
+    }
+
+    public static class Builder {
+        private final Set<Type> includedTypes = EnumSet.noneOf(Type.class);
+        private final Set<Type> excludedTypes = EnumSet.noneOf(Type.class);
+        private final Set<String> fieldNames = new HashSet<>();
+        private boolean skipEmptyValues = false;
+        private int subFormDepth = 0;
+        private boolean resolveReferences = false;
+
+        private Builder() {
+        }
+
+        public Builder includeTypes(Collection<Type> types) {
+            this.includedTypes.addAll(types);
+            return this;
+        }
+
+        public Builder excludeTypes(Collection<Type> types) {
+            this.excludedTypes.addAll(types);
+            return this;
+        }
+
+        public Builder fieldNames(Collection<String> fieldNames) {
+            this.fieldNames.addAll(fieldNames);
+            return this;
+        }
+
+        public Builder skipEmptyValues(boolean skipEmptyValues) {
+            this.skipEmptyValues = skipEmptyValues;
+            return this;
+        }
+
+        public Builder subFormDepth(int subFormDepth) {
+            this.subFormDepth = Math.max(0, subFormDepth);
+            return this;
+        }
+
+        public Builder resolveReferences(boolean resolveReferences) {
+            this.resolveReferences = resolveReferences;
+            return this;
+        }
+
+        public FormInfoOptions build() {
+            return new FormInfoOptions(this);
+        }
+    }
+}
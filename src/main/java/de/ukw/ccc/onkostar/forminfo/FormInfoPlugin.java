@@ -29,11 +29,16 @@ import de.itc.onkostar.api.Procedure;
 import de.itc.onkostar.api.analysis.AnalyzerRequirement;
 import de.itc.onkostar.api.analysis.IProcedureAnalyzer;
 import de.itc.onkostar.api.analysis.OnkostarPluginType;
+import de.ukw.ccc.onkostar.forminfo.services.FormInfoMetrics;
 import de.ukw.ccc.onkostar.forminfo.services.FormInfoService;
+import de.ukw.ccc.onkostar.forminfo.services.ProcedureHierarchyIndex;
 import org.springframework.stereotype.Component;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Implementation of this plugin
@@ -46,8 +51,14 @@ public class FormInfoPlugin implements IProcedureAnalyzer {
 
     private final FormInfoService service;
 
-    FormInfoPlugin(final FormInfoService service) {
+    private final FormInfoMetrics metrics;
+
+    private final ProcedureHierarchyIndex hierarchyIndex;
+
+    FormInfoPlugin(final FormInfoService service, final FormInfoMetrics metrics, final ProcedureHierarchyIndex hierarchyIndex) {
         this.service = service;
+        this.metrics = metrics;
+        this.hierarchyIndex = hierarchyIndex;
     }
 
     @Override
@@ -57,7 +68,7 @@ public class FormInfoPlugin implements IProcedureAnalyzer {
 
     @Override
     public String getVersion() {
-        return "0.1.0";
+        return "0.2.0";
     }
 
     @Override
@@ -82,36 +93,175 @@ public class FormInfoPlugin implements IProcedureAnalyzer {
 
     @Override
     public boolean isRelevantForDeletedProcedure() {
-        return false;
+        return hierarchyIndex.isEnabled();
     }
 
     @Override
     public boolean isRelevantForAnalyzer(Procedure procedure, Disease disease) {
-        return false;
+        return hierarchyIndex.isEnabled();
     }
 
+    /**
+     * Keeps the in-memory index of main forms and sub forms up to date if enabled.
+     * Called for saved and deleted procedures, the current state is read from the database.
+     */
     @Override
     public void analyze(Procedure procedure, Disease disease) {
-        // Nothing to do - should never be called
+        if (null == procedure || null == procedure.getId() || !hierarchyIndex.isEnabled()) {
+            return;
+        }
+        hierarchyIndex.update(procedure.getId());
     }
 
     /**
-     * This method returns the content of given form
+     * This method returns the content of given form.
+     * Optional filter options: 'includeTypes', 'excludeTypes', 'fields' and 'skipEmpty'.
+     * Use 'deep' or 'subFormDepth' to inline the content of sub forms into SUBFORM entries.
+     * Use 'resolveReferences' to add summaries of referenced forms to FORM_REFERENCE entries.
+     * Use 'tree' to get the content as tree of sections and groups, loaded up to 'depth' levels (default 0).
      *
-     * @param data Data map containing procedure ID of the requested form.
+     * @param data Data map containing procedure ID of the requested form and optional filter options.
      * @return List containing content data
      */
     public List<Result> getContent(Map<String, Object> data) {
-        var id = data.get("id");
-        if (null == id) {
-            throw new RuntimeException("Missing value for 'id'");
-        }
+        return metrics.timed("FormInfoPlugin.getContent", () -> {
+            var id = data.get("id");
+            if (null == id) {
+                throw new RuntimeException("Missing value for 'id'");
+            }
 
-        try {
-            return service.getFormInfo(Integer.parseInt(id.toString()));
-        } catch (Exception e) {
-            throw new RuntimeException(String.format("Invalid procedure id: %s", id));
-        }
+            try {
+                if (null != data.get("tree") && Boolean.parseBoolean(data.get("tree").toString())) {
+                    return service.getFormInfoTree(Integer.parseInt(id.toString()), toOptions(data), toDepth(data, 0));
+                }
+                return service.getFormInfo(Integer.parseInt(id.toString()), toOptions(data));
+            } catch (Exception e) {
+                throw new RuntimeException(String.format("Invalid procedure id: %s", id));
+            }
+        }, List::size);
+    }
+
+    /**
+     * This method returns a section or group of given form as tree. Children are loaded up to 'depth' levels (default 1),
+     * deeper sections and groups can be loaded by further calls.
+     * Supports the same filter options as {@link #getContent(Map)}.
+     *
+     * @param data Data map containing procedure ID of the requested form, the name of the section or group as 'entryName'
+     *             and optional filter options.
+     * @return The content node of the section or group
+     */
+    public ContentNode getContentSection(Map<String, Object> data) {
+        return metrics.timed("FormInfoPlugin.getContentSection", () -> {
+            var id = data.get("id");
+            if (null == id) {
+                throw new RuntimeException("Missing value for 'id'");
+            }
+            var entryName = data.get("entryName");
+            if (null == entryName) {
+                throw new RuntimeException("Missing value for 'entryName'");
+            }
+
+            try {
+                return service.getFormInfoSection(Integer.parseInt(id.toString()), entryName.toString(), toOptions(data), toDepth(data, 1));
+            } catch (Exception e) {
+                throw new RuntimeException(String.format("Invalid procedure id or entry name: %s, %s", id, entryName));
+            }
+        }, result -> result.children.size());
+    }
+
+    /**
+     * This method returns the content of given form and its fingerprint.
+     * If the fingerprint matches 'ifNoneMatch', only the fingerprint is returned.
+     * Supports the same filter options as {@link #getContent(Map)}.
+     *
+     * @param data Data map containing procedure ID of the requested form, optional 'ifNoneMatch' and filter options.
+     * @return Content and fingerprint or fingerprint only if content was not modified
+     */
+    public ContentResult getContentIfModified(Map<String, Object> data) {
+        return metrics.timed("FormInfoPlugin.getContentIfModified", () -> {
+            var id = data.get("id");
+            if (null == id) {
+                throw new RuntimeException("Missing value for 'id'");
+            }
+
+            var ifNoneMatch = data.get("ifNoneMatch");
+
+            try {
+                return service.getFormInfoIfModified(
+                        Integer.parseInt(id.toString()),
+                        toOptions(data),
+                        null == ifNoneMatch ? null : ifNoneMatch.toString()
+                );
+            } catch (Exception e) {
+                throw new RuntimeException(String.format("Invalid procedure id: %s", id));
+            }
+        }, result -> result.notModified ? 0 : result.content.size());
+    }
+
+    /**
+     * This method returns the ordered fields of given form without values.
+     * Use it together with {@link #getContentValues(Map)} to avoid repeating field descriptions.
+     *
+     * @param data Data map containing the name of the form as 'formName'.
+     * @return The schema of the form
+     */
+    public FormSchema getFormSchema(Map<String, Object> data) {
+        return metrics.timed("FormInfoPlugin.getFormSchema", () -> {
+            var formName = data.get("formName");
+            if (null == formName) {
+                throw new RuntimeException("Missing value for 'formName'");
+            }
+
+            try {
+                return service.getFormSchema(formName.toString());
+            } catch (Exception e) {
+                throw new RuntimeException(String.format("Invalid form name: %s", formName));
+            }
+        }, result -> result.fields.size());
+    }
+
+    /**
+     * This method returns the values of given form aligned to the fields returned by {@link #getFormSchema(Map)}.
+     * Optional filter options: 'includeTypes', 'excludeTypes' and 'fields'. Values of other fields are null.
+     *
+     * @param data Data map containing procedure ID of the requested form and optional filter options.
+     * @return Values and version of the schema the values are aligned to
+     */
+    public ContentValues getContentValues(Map<String, Object> data) {
+        return metrics.timed("FormInfoPlugin.getContentValues", () -> {
+            var id = data.get("id");
+            if (null == id) {
+                throw new RuntimeException("Missing value for 'id'");
+            }
+
+            try {
+                return service.getFormInfoValues(Integer.parseInt(id.toString()), toOptions(data));
+            } catch (Exception e) {
+                throw new RuntimeException(String.format("Invalid procedure id: %s", id));
+            }
+        }, result -> result.values.size());
+    }
+
+    /**
+     * This method returns the contents of all given forms.
+     * Supports the same filter options as {@link #getContent(Map)}.
+     *
+     * @param data Data map containing procedure IDs of the requested forms as 'ids' and optional filter options.
+     * @return Map containing content data or an error for each procedure ID
+     */
+    public Map<Integer, FormInfoResult> getContents(Map<String, Object> data) {
+        return metrics.timed("FormInfoPlugin.getContents", () -> {
+            var ids = data.get("ids");
+            if (null == ids) {
+                throw new RuntimeException("Missing value for 'ids'");
+            }
+
+            try {
+                return service.getFormInfos(toIntegerList(ids), toOptions(data));
+            } catch (Exception e) {
+                throw new RuntimeException(String.format("Invalid procedure ids: %s", ids));
+            }
+        }, Map::size);
     }
 
     /**
@@ -121,16 +271,18 @@ public class FormInfoPlugin implements IProcedureAnalyzer {
      * @return procedure ID of the related main form
      */
     public int getMainFormProcedureId(Map<String, Object> data) {
-        var id = data.get("id");
-        if (null == id) {
-            throw new RuntimeException("Missing value for 'id'");
-        }
+        return metrics.timed("FormInfoPlugin.getMainFormProcedureId", () -> {
+            var id = data.get("id");
+            if (null == id) {
+                throw new RuntimeException("Missing value for 'id'");
+            }
 
-        try {
-            return service.getMainFormProcedureId(Integer.parseInt(id.toString()));
-        } catch (Exception e) {
-            throw new RuntimeException(String.format("Invalid procedure id: %s", id));
-        }
+            try {
+                return service.getMainFormProcedureId(Integer.parseInt(id.toString()));
+            } catch (Exception e) {
+                throw new RuntimeException(String.format("Invalid procedure id: %s", id));
+            }
+        }, result -> 1);
     }
 
     /**
@@ -140,11 +292,137 @@ public class FormInfoPlugin implements IProcedureAnalyzer {
      * @return procedure IDs of the related sub forms
      */
     public List<Integer> getSubFormProcedureIds(Map<String, Object> data) {
-        var id = data.get("id");
-        if (null == id) {
-            throw new RuntimeException("Missing value for 'id'");
+        return metrics.timed("FormInfoPlugin.getSubFormProcedureIds", () -> {
+            var id = data.get("id");
+            if (null == id) {
+                throw new RuntimeException("Missing value for 'id'");
+            }
+
+            return service.getSubFormProcedureIds(Integer.parseInt(id.toString()));
+        }, List::size);
+    }
+
+    /**
+     * This method returns the tree of all nested sub forms for given form
+     *
+     * @param data Data map containing ID of a form.
+     * @return tree of the given form and its nested sub forms
+     */
+    public SubFormNode getSubFormTree(Map<String, Object> data) {
+        return metrics.timed("FormInfoPlugin.getSubFormTree", () -> {
+            var id = data.get("id");
+            if (null == id) {
+                throw new RuntimeException("Missing value for 'id'");
+            }
+
+            try {
+                return service.getSubFormTree(Integer.parseInt(id.toString()));
+            } catch (Exception e) {
+                throw new RuntimeException(String.format("Invalid procedure id: %s", id));
+            }
+        }, result -> 1);
+    }
+
+    /**
+     * This method returns the procedure ID of the top level main form for given subform
+     *
+     * @param data Data map containing ID of a subform.
+     * @return procedure ID of the top level main form
+     */
+    public int getRootProcedureId(Map<String, Object> data) {
+        return metrics.timed("FormInfoPlugin.getRootProcedureId", () -> {
+            var id = data.get("id");
+            if (null == id) {
+                throw new RuntimeException("Missing value for 'id'");
+            }
+
+            try {
+                return service.getRootProcedureId(Integer.parseInt(id.toString()));
+            } catch (Exception e) {
+                throw new RuntimeException(String.format("Invalid procedure id: %s", id));
+            }
+        }, result -> 1);
+    }
+
+    /**
+     * This method removes cached form definitions
+     *
+     * @param data Data map containing the name of the form as 'formName'. All cached data will be removed if missing.
+     * @return true if cache has been invalidated
+     */
+    public boolean invalidateFormCache(Map<String, Object> data) {
+        var formName = null == data ? null : data.get("formName");
+        service.invalidateFormCache(null == formName ? null : formName.toString());
+        return true;
+    }
+
+    /**
+     * This method returns runtime metrics of all calls and caches
+     *
+     * @param data Data map, metrics will be reset after this call if 'reset' is true.
+     * @return Map containing recorded metrics
+     */
+    public Map<String, Object> getStats(Map<String, Object> data) {
+        var stats = metrics.getStats();
+        if (null != data && Boolean.parseBoolean(String.valueOf(data.get("reset")))) {
+            metrics.reset();
+        }
+        return stats;
+    }
+
+    private static FormInfoOptions toOptions(Map<String, Object> data) {
+        var builder = FormInfoOptions.builder();
+        if (null != data.get("includeTypes")) {
+            builder.includeTypes(toTypeList(data.get("includeTypes")));
+        }
+        if (null != data.get("excludeTypes")) {
+            builder.excludeTypes(toTypeList(data.get("excludeTypes")));
+        }
+        if (null != data.get("fields")) {
+            builder.fieldNames(toStringList(data.get("fields")));
+        }
+        if (null != data.get("skipEmpty")) {
+            builder.skipEmptyValues(Boolean.parseBoolean(data.get("skipEmpty").toString()));
+        }
+        if (null != data.get("subFormDepth")) {
+            builder.subFormDepth(Integer.parseInt(data.get("subFormDepth").toString()));
+        } else if (null != data.get("deep") && Boolean.parseBoolean(data.get("deep").toString())) {
+            builder.subFormDepth(Integer.MAX_VALUE);
+        }
+        if (null != data.get("resolveReferences")) {
+            builder.resolveReferences(Boolean.parseBoolean(data.get("resolveReferences").toString()));
         }
+        return builder.build();
+    }
+
+    private static int toDepth(Map<String, Object> data, int defaultValue) {
+        return null == data.get("depth") ? defaultValue : Integer.parseInt(data.get("depth").toString());
+    }
+
+    private static Collection<?> toCollection(Object values) {
+        if (values instanceof Collection) {
+            return (Collection<?>) values;
+        } else if (values instanceof Object[]) {
+            return Arrays.asList((Object[]) values);
+        }
+        return Arrays.asList(values.toString().split(","));
+    }
+
+    private static List<String> toStringList(Object values) {
+        return toCollection(values).stream()
+                .map(value -> value.toString().trim())
+                .collect(Collectors.toList());
+    }
+
+    private static List<Integer> toIntegerList(Object values) {
+        return toStringList(values).stream()
+                .map(Integer::parseInt)
+                .collect(Collectors.toList());
+    }
 
-        return service.getSubFormProcedureIds(Integer.parseInt(id.toString()));
+    private static List<Type> toTypeList(Object values) {
+        return toStringList(values).stream()
+                .map(value -> Type.valueOf(value.toUpperCase()))
+                .collect(Collectors.toList());
     }
 }
@@ -0,0 +1,186 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Comprehensive Cancer Center Mainfranken
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.ukw.ccc.onkostar.forminfo.services;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Loads definitions and catalogue entries of the most used forms into caches on a low priority
+ * background thread. Forms are ranked by number of procedures, catalogue entries are loaded using
+ * the values of the latest procedures of each form as read from data catalogue tables.
+ * Prewarming stops if the time budget is exceeded.
+ *
+ * @author Paul-Christian Volkmer
+ * @since 0.2.0
+ */
+class CachePrewarmer {
+
+    static final int DEFAULT_FORM_COUNT = 20;
+
+    static final int DEFAULT_SAMPLES_PER_FORM = 10;
+
+    static final Duration DEFAULT_TIME_BUDGET = Duration.ofSeconds(60);
+
+    enum State {
+        DISABLED,
+        PENDING,
+        RUNNING,
+        FINISHED,
+        BUDGET_EXCEEDED,
+        FAILED
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final BiConsumer<String, List<Integer>> prewarmForm;
+
+    private final int formCount;
+
+    private final int samplesPerForm;
+
+    private final Duration timeBudget;
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private final AtomicInteger formsLoaded = new AtomicInteger();
+
+    private final AtomicInteger proceduresLoaded = new AtomicInteger();
+
+    private volatile State state;
+
+    private volatile int formsTotal;
+
+    private volatile Instant startedAt;
+
+    private volatile Duration duration;
+
+    private volatile String error;
+
+    /**
+     * Creates a new cache prewarmer
+     *
+     * @param jdbcTemplate The JdbcTemplate to be used
+     * @param settings     The plugin settings
+     * @param prewarmForm  Loads form definition and catalogue entries used by given procedures of a form into caches
+     */
+    CachePrewarmer(
+            final JdbcTemplate jdbcTemplate,
+            final FormInfoSettings settings,
+            final BiConsumer<String, List<Integer>> prewarmForm
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.prewarmForm = prewarmForm;
+        this.formCount = settings.getInt(FormInfoSettings.PREWARM_FORMS, DEFAULT_FORM_COUNT);
+        this.samplesPerForm = settings.getInt(FormInfoSettings.PREWARM_SAMPLES_PER_FORM, DEFAULT_SAMPLES_PER_FORM);
+        this.timeBudget = settings.getDuration(FormInfoSettings.PREWARM_TIME_BUDGET, DEFAULT_TIME_BUDGET);
+        this.state = settings.getBoolean(FormInfoSettings.PREWARM_ENABLED, false) ? State.PENDING : State.DISABLED;
+    }
+
+    /**
+     * Starts prewarming on a background thread. Does nothing if disabled or already started.
+     */
+    void start() {
+        if (state == State.DISABLED || !started.compareAndSet(false, true)) {
+            return;
+        }
+        var thread = new Thread(this::run, "forminfo-prewarm");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    void run() {
+        var startNanos = System.nanoTime();
+        var deadline = startNanos + timeBudget.toNanos();
+        startedAt = Instant.now();
+        state = State.RUNNING;
+
+        try {
+            var sql = "SELECT data_form.name FROM prozedur " +
+                    "    JOIN data_form ON data_form.id = prozedur.data_form_id " +
+                    "    GROUP BY data_form.name ORDER BY COUNT(prozedur.id) DESC LIMIT ?";
+            var formNames = jdbcTemplate.queryForList(sql, String.class, formCount);
+            formsTotal = formNames.size();
+
+            var samplesSql = "SELECT prozedur.id FROM prozedur " +
+                    "    JOIN data_form ON data_form.id = prozedur.data_form_id " +
+                    "    WHERE data_form.name = ? ORDER BY prozedur.id DESC LIMIT ?";
+            for (var formName : formNames) {
+                if (System.nanoTime() - deadline >= 0) {
+                    state = State.BUDGET_EXCEEDED;
+                    return;
+                }
+                var procedureIds = samplesPerForm > 0
+                        ? jdbcTemplate.queryForList(samplesSql, Integer.class, formName, samplesPerForm)
+                        : List.<Integer>of();
+                prewarmForm.accept(formName, procedureIds);
+                formsLoaded.incrementAndGet();
+                proceduresLoaded.addAndGet(procedureIds.size());
+            }
+            state = State.FINISHED;
+        } catch (Exception e) {
+            error = e.getMessage();
+            state = State.FAILED;
+        } finally {
+            duration = Duration.ofNanos(System.nanoTime() - startNanos);
+        }
+    }
+
+    State getState() {
+        return state;
+    }
+
+    /**
+     * Returns the current progress of prewarming
+     *
+     * @return Map containing state and progress
+     */
+    Map<String, Object> getStatus() {
+        var result = new LinkedHashMap<String, Object>();
+        result.put("state", state.name());
+        result.put("formsLoaded", formsLoaded.get());
+        result.put("formsTotal", formsTotal);
+        result.put("proceduresLoaded", proceduresLoaded.get());
+        if (null != startedAt) {
+            result.put("startedAt", startedAt.toString());
+        }
+        if (null != duration) {
+            result.put("durationMillis", duration.toMillis());
+        }
+        if (null != error) {
+            result.put("error", error);
+        }
+        return result;
+    }
+}
@@ -26,16 +26,54 @@ package de.ukw.ccc.onkostar.forminfo.services;
 
 import de.itc.onkostar.api.IOnkostarApi;
 import de.itc.onkostar.api.Procedure;
+import de.ukw.ccc.onkostar.forminfo.ContentNode;
+import de.ukw.ccc.onkostar.forminfo.ContentResult;
+import de.ukw.ccc.onkostar.forminfo.ContentValues;
+import de.ukw.ccc.onkostar.forminfo.ExportFormat;
 import de.ukw.ccc.onkostar.forminfo.FormInfoException;
+import de.ukw.ccc.onkostar.forminfo.FormInfoOptions;
+import de.ukw.ccc.onkostar.forminfo.FormInfoResult;
+import de.ukw.ccc.onkostar.forminfo.FormReferenceResult;
+import de.ukw.ccc.onkostar.forminfo.FormReferenceSummary;
+import de.ukw.ccc.onkostar.forminfo.FormSchema;
 import de.ukw.ccc.onkostar.forminfo.Result;
+import de.ukw.ccc.onkostar.forminfo.SubFormNode;
+import de.ukw.ccc.onkostar.forminfo.SubFormResult;
 import de.ukw.ccc.onkostar.forminfo.Type;
+import de.ukw.ccc.onkostar.forminfo.services.FieldDescriptor.ValueStrategy;
+import de.ukw.ccc.onkostar.forminfo.services.PropertyCatalogueRepository.CatalogueKey;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Service;
 
 import javax.sql.DataSource;
-import java.text.SimpleDateFormat;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.ResultSet;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -46,141 +84,1170 @@ import java.util.stream.Collectors;
  * @since 0.1.0
  */
 @Service
-class DefaultFormInfoService implements FormInfoService {
+class DefaultFormInfoService implements FormInfoService, DisposableBean, ApplicationListener<ContextRefreshedEvent> {
+
+    static final int MAX_HIERARCHY_DEPTH = 32;
+
+    static final String DEFAULT_MODIFICATION_COLUMN = "timestamp";
+
+    static final int DEFAULT_MAX_SUB_FORM_DEPTH = 3;
+
+    /**
+     * Name of the additional SUBFORM entry containing sub forms without matching SUBFORM entry
+     */
+    static final String UNASSIGNED_SUB_FORMS = "unassignedSubForms";
+
+    static final int DEFAULT_REFERENCE_CACHE_SIZE = 1000;
+
+    static final Duration DEFAULT_REFERENCE_CACHE_TTL = Duration.ofSeconds(60);
+
+    static final String VALUE_SOURCE_JDBC = "jdbc";
+
+    static final int DEFAULT_EXPORT_FETCH_SIZE = 500;
+
+    static final int DEFAULT_EXPORT_PAGE_SIZE = 500;
+
+    static final int EXPORT_CHUNK_SIZE = 100;
 
     private final IOnkostarApi onkostarApi;
 
     private final JdbcTemplate jdbcTemplate;
 
-    DefaultFormInfoService(final IOnkostarApi onkostarApi, final DataSource dataSource) {
+    private final FormDefinitionRepository formDefinitionRepository;
+
+    private final PropertyCatalogueRepository propertyCatalogueRepository;
+
+    /**
+     * Optional reader of field values, procedures are loaded using IOnkostarApi if not available
+     */
+    private final JdbcValueReader jdbcValueReader;
+
+    private final FormInfoMetrics metrics;
+
+    private final FormInfoSettings settings;
+
+    private final LruCache<Integer, FormReferenceSummary> referenceSummaries;
+
+    private final FormInfoExecutor executor;
+
+    private final CachePrewarmer prewarmer;
+
+    private final SingleFlight<String> singleFlight = new SingleFlight<>();
+
+    private final ProcedureHierarchyIndex hierarchyIndex;
+
+    private final String procedureStateSql;
+
+    private final String procedureStatesSql;
+
+    private final int maxSubFormDepth;
+
+    private final int exportPageSize;
+
+    @Autowired
+    DefaultFormInfoService(
+            final IOnkostarApi onkostarApi,
+            final DataSource dataSource,
+            final FormInfoMetrics metrics,
+            final FormInfoSettings settings,
+            final ProcedureHierarchyIndex hierarchyIndex
+    ) {
+        this(onkostarApi, new CountingJdbcTemplate(dataSource, metrics), metrics, settings, hierarchyIndex);
+    }
+
+    DefaultFormInfoService(
+            final IOnkostarApi onkostarApi,
+            final JdbcTemplate jdbcTemplate,
+            final FormInfoMetrics metrics,
+            final FormInfoSettings settings
+    ) {
+        this(
+                onkostarApi,
+                jdbcTemplate,
+                metrics,
+                settings,
+                new ProcedureHierarchyIndex(
+                        jdbcTemplate,
+                        settings,
+                        settings.getInt(FormInfoSettings.EXPORT_FETCH_SIZE, DEFAULT_EXPORT_FETCH_SIZE)
+                )
+        );
+    }
+
+    DefaultFormInfoService(
+            final IOnkostarApi onkostarApi,
+            final JdbcTemplate jdbcTemplate,
+            final FormInfoMetrics metrics,
+            final FormInfoSettings settings,
+            final ProcedureHierarchyIndex hierarchyIndex
+    ) {
         this.onkostarApi = onkostarApi;
-        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate = jdbcTemplate;
+        this.metrics = metrics;
+        this.settings = settings;
+        this.formDefinitionRepository = new FormDefinitionRepository(jdbcTemplate, settings);
+        this.propertyCatalogueRepository = new PropertyCatalogueRepository(jdbcTemplate, settings);
+        this.jdbcValueReader = VALUE_SOURCE_JDBC.equalsIgnoreCase(settings.getString(FormInfoSettings.VALUE_SOURCE, ""))
+                ? new JdbcValueReader(jdbcTemplate, settings)
+                : null;
+        var modificationColumn = settings.getString(FormInfoSettings.FINGERPRINT_MODIFICATION_COLUMN, DEFAULT_MODIFICATION_COLUMN);
+        if (!modificationColumn.matches("[A-Za-z_][A-Za-z0-9_]*")) {
+            throw new IllegalArgumentException(String.format("Invalid modification column '%s'", modificationColumn));
+        }
+        this.procedureStateSql = "SELECT prozedur." + modificationColumn + " AS modified_at, data_form.name AS form_name FROM prozedur " +
+                "    JOIN data_form ON data_form.id = prozedur.data_form_id " +
+                "    WHERE prozedur.id = ?";
+        this.procedureStatesSql = "SELECT prozedur.id, prozedur." + modificationColumn + " AS modified_at, data_form.name AS form_name FROM prozedur " +
+                "    JOIN data_form ON data_form.id = prozedur.data_form_id " +
+                "    WHERE prozedur.id IN (";
+        this.maxSubFormDepth = Math.min(
+                settings.getInt(FormInfoSettings.SUB_FORM_MAX_DEPTH, DEFAULT_MAX_SUB_FORM_DEPTH),
+                MAX_HIERARCHY_DEPTH
+        );
+        this.exportPageSize = Math.max(1, settings.getInt(FormInfoSettings.EXPORT_PAGE_SIZE, DEFAULT_EXPORT_PAGE_SIZE));
+        this.referenceSummaries = new LruCache<>(
+                settings.getInt(FormInfoSettings.REFERENCE_CACHE_SIZE, DEFAULT_REFERENCE_CACHE_SIZE),
+                settings.getDuration(FormInfoSettings.REFERENCE_CACHE_TTL, DEFAULT_REFERENCE_CACHE_TTL)
+        );
+        this.executor = new FormInfoExecutor(settings);
+        // Separate reader, prewarming should neither depend on the configured value source nor affect its cache statistics
+        var prewarmValueReader = new JdbcValueReader(jdbcTemplate, settings);
+        this.prewarmer = new CachePrewarmer(jdbcTemplate, settings, (formName, procedureIds) -> {
+            var formDefinition = formDefinitionRepository.get(formName);
+            var catalogueKeys = new ArrayList<CatalogueKey>();
+            for (var procedureId : procedureIds) {
+                var values = prewarmValueReader.read(procedureId, formDefinition, formDefinition.fields);
+                if (null == values) {
+                    // Form cannot be read from data catalogue tables
+                    break;
+                }
+                catalogueKeys.addAll(getCatalogueKeys(values));
+            }
+            propertyCatalogueRepository.prewarm(catalogueKeys);
+        });
+        this.hierarchyIndex = hierarchyIndex;
+        metrics.registerCache("formDefinitions", formDefinitionRepository.getCache());
+        metrics.registerCache("propertyCatalogueEntries", propertyCatalogueRepository.getCache());
+        metrics.registerCache("formReferenceSummaries", referenceSummaries);
+        if (null != jdbcValueReader) {
+            metrics.registerCache("valueColumns", jdbcValueReader.getCache());
+        }
+        metrics.registerStatus("prewarm", prewarmer::getStatus);
+        metrics.registerStatus("singleFlight", singleFlight::getStatus);
+        metrics.registerStatus("hierarchyIndex", hierarchyIndex::getStatus);
     }
 
     @Override
-    public List<Result> getFormInfo(int procedureId) {
-        var procedure = onkostarApi.getProcedure(procedureId);
+    public List<Result> getFormInfo(int procedureId, FormInfoOptions options) {
+        // Result is shared by all coalesced callers and therefore must not be modifiable
+        return metrics.timed("FormInfoService.getFormInfo", () -> singleFlight.execute("getFormInfo:" + procedureId + ":" + options.key(), () -> {
+            if (options.subFormDepth > 0) {
+                return List.copyOf(getFormInfoWithSubForms(procedureId, options));
+            }
 
-        if (null == procedure) {
-            throw new FormInfoException(String.format("No such procedure with ID '%d'", procedureId));
+            var content = loadContent(procedureId, options);
+            if (options.resolveReferences) {
+                resolveFormReferences(List.of(content.results));
+            }
+            return List.copyOf(content.results);
+        }), List::size);
+    }
+
+    @Override
+    public FormSchema getFormSchema(String formName) {
+        return metrics.timed("FormInfoService.getFormSchema", () -> {
+            var formDefinition = formDefinitionRepository.get(formName);
+            return new FormSchema(
+                    formDefinition.formName,
+                    formDefinition.schemaVersion,
+                    Arrays.stream(formDefinition.fields)
+                            .map(field -> new FormSchema.Field(field.name, field.description, field.type))
+                            .collect(Collectors.toList())
+            );
+        }, result -> result.fields.size());
+    }
+
+    @Override
+    public ContentValues getFormInfoValues(int procedureId, FormInfoOptions options) {
+        return metrics.timed("FormInfoService.getFormInfoValues", () -> {
+            var content = loadContent(
+                    procedureId,
+                    options.toBuilder().skipEmptyValues(false).subFormDepth(0).resolveReferences(false).build()
+            );
+            return new ContentValues(
+                    content.formDefinition.formName,
+                    content.formDefinition.schemaVersion,
+                    alignValues(content.formDefinition.fields, content.fields, content.results)
+            );
+        }, result -> result.values.size());
+    }
+
+    @Override
+    public List<Result> getFormInfoTree(int procedureId, FormInfoOptions options, int depth) {
+        return metrics.timed("FormInfoService.getFormInfoTree", () -> loadTree(
+                procedureId,
+                formDefinition -> formDefinition.entries,
+                options,
+                depth
+        ), List::size);
+    }
+
+    @Override
+    public ContentNode getFormInfoSection(int procedureId, String entryName, FormInfoOptions options, int depth) {
+        return metrics.timed("FormInfoService.getFormInfoSection", () -> {
+            var result = loadTree(procedureId, formDefinition -> {
+                var entry = findEntry(formDefinition.entries, entryName);
+                if (null == entry) {
+                    throw new FormInfoException(String.format("No such entry '%s' in form '%s'", entryName, formDefinition.formName));
+                }
+                if (entry.type != Type.SECTION && entry.type != Type.GROUP) {
+                    throw new FormInfoException(String.format("Entry '%s' is not a section or group", entryName));
+                }
+                return List.of(entry);
+            }, options, Math.max(1, depth));
+            return (ContentNode) result.get(0);
+        }, result -> result.children.size());
+    }
+
+    /**
+     * Loads given root entries as tree. Only values of fields within the given depth of sections and groups are read,
+     * sections and groups below are returned without children.
+     */
+    private List<Result> loadTree(int procedureId, Function<FormDefinition, List<Entry>> roots, FormInfoOptions options, int depth) {
+        var content = loadContent(
+                procedureId,
+                formDefinition -> {
+                    var fields = new ArrayList<FieldDescriptor>();
+                    collectTreeFields(formDefinition, roots.apply(formDefinition), depth, options, fields);
+                    return fields.toArray(new FieldDescriptor[0]);
+                },
+                false
+        );
+        if (options.resolveReferences) {
+            resolveFormReferences(List.of(content.results));
+        }
+
+        var results = new IdentityHashMap<FieldDescriptor, Result>();
+        for (int i = 0; i < content.fields.length; i++) {
+            results.put(content.fields[i], content.results.get(i));
+        }
+        return buildTree(content.formDefinition, roots.apply(content.formDefinition), depth, results, options.skipEmptyValues);
+    }
+
+    /**
+     * Collects requested fields of given entries in form order. Children of sections and groups are collected up to given depth.
+     */
+    private static void collectTreeFields(FormDefinition formDefinition, List<Entry> entries, int depth, FormInfoOptions options, List<FieldDescriptor> target) {
+        for (var entry : entries) {
+            if (entry.type == Type.SECTION || entry.type == Type.GROUP) {
+                if (depth > 0) {
+                    collectTreeFields(formDefinition, entry.children, depth - 1, options, target);
+                }
+            } else if (options.isRequested(entry.name, entry.type)) {
+                target.add(formDefinition.getDescriptor(entry));
+            }
+        }
+    }
+
+    private static List<Result> buildTree(
+            FormDefinition formDefinition,
+            List<Entry> entries,
+            int depth,
+            Map<FieldDescriptor, Result> results,
+            boolean skipEmptyValues
+    ) {
+        var nodes = new ArrayList<Result>();
+        for (var entry : entries) {
+            if (entry.type == Type.SECTION || entry.type == Type.GROUP) {
+                var node = new Result(entry.name, entry.description, null, entry.type);
+                nodes.add(depth > 0
+                        ? new ContentNode(node, entry.children.size(), buildTree(formDefinition, entry.children, depth - 1, results, skipEmptyValues))
+                        : new ContentNode(node, entry.children.size())
+                );
+                continue;
+            }
+
+            var result = results.get(formDefinition.getDescriptor(entry));
+            if (null == result) {
+                continue;
+            }
+            if (skipEmptyValues && result.type != Type.SUBFORM && (null == result.value || result.value.toString().isBlank())) {
+                continue;
+            }
+            nodes.add(result);
+        }
+        return nodes;
+    }
+
+    private static Entry findEntry(List<Entry> entries, String name) {
+        for (var entry : entries) {
+            if (entry.name.equals(name)) {
+                return entry;
+            }
+            var child = findEntry(entry.children, name);
+            if (null != child) {
+                return child;
+            }
         }
+        return null;
+    }
 
-        return getDataFormEntry(procedure, null)
-                .stream()
-                .flatMap(element -> flattenEntry(element).stream())
-                .map(getResultFunction(procedure)).collect(Collectors.toList());
+    /**
+     * Loads the content of a single procedure without sub forms and references
+     */
+    private FormContent loadContent(int procedureId, FormInfoOptions options) {
+        return loadContent(procedureId, formDefinition -> selectFields(formDefinition, options), options.skipEmptyValues);
+    }
+
+    /**
+     * Loads the values of fields selected from the form definition of a single procedure
+     */
+    private FormContent loadContent(int procedureId, Function<FormDefinition, FieldDescriptor[]> fieldSelector, boolean skipEmptyValues) {
+        FormDefinition formDefinition = null;
+        FieldDescriptor[] fields = null;
+        FieldValue[] values = null;
+
+        if (null != jdbcValueReader) {
+            var jdbcFormDefinition = formDefinitionRepository.get(jdbcValueReader.getFormName(procedureId));
+            var requestedFields = fieldSelector.apply(jdbcFormDefinition);
+            formDefinition = jdbcFormDefinition;
+            fields = requestedFields;
+            values = metrics.timed("JdbcValueReader.read", () -> jdbcValueReader.read(procedureId, jdbcFormDefinition, requestedFields), result -> 1);
+        }
+
+        if (null == values) {
+            var procedure = getProcedure(procedureId);
+
+            if (null == procedure) {
+                throw new FormInfoException(String.format("No such procedure with ID '%d'", procedureId));
+            }
+
+            formDefinition = formDefinitionRepository.get(procedure.getFormName());
+            fields = fieldSelector.apply(formDefinition);
+            values = readValues(procedure, fields);
+        }
+
+        var catalogueEntries = propertyCatalogueRepository.getShortDescriptions(getCatalogueKeys(values));
+
+        return new FormContent(formDefinition, fields, getResults(fields, values, catalogueEntries, skipEmptyValues));
+    }
+
+    /**
+     * Aligns results of selected fields to all fields of the form. Selected fields are expected
+     * to be in form order, as returned by {@link #selectFields(FormDefinition, FormInfoOptions)}.
+     */
+    static List<Object> alignValues(FieldDescriptor[] schema, FieldDescriptor[] fields, List<Result> results) {
+        var values = new Object[schema.length];
+        for (int i = 0, j = 0; i < schema.length && j < fields.length; i++) {
+            if (schema[i] == fields[j]) {
+                values[i] = results.get(j).value;
+                j++;
+            }
+        }
+        return Arrays.asList(values);
     }
 
     @Override
-    public int getMainFormProcedureId(int procedureId) {
-        var sql = "SELECT hauptprozedur_id FROM prozedur WHERE id = ?";
+    public ContentResult getFormInfoIfModified(int procedureId, FormInfoOptions options, String ifNoneMatch) {
+        return metrics.timed("FormInfoService.getFormInfoIfModified", () -> {
+            var fingerprint = getFingerprint(procedureId, options);
+            // Changes of referenced procedures are not part of the fingerprint
+            if (!options.resolveReferences && fingerprint.equals(ifNoneMatch)) {
+                return ContentResult.notModified(fingerprint);
+            }
+            return ContentResult.modified(fingerprint, getFormInfo(procedureId, options));
+        }, result -> result.notModified ? 0 : result.content.size());
+    }
+
+    @Override
+    public Map<Integer, FormInfoResult> getFormInfos(Collection<Integer> procedureIds, FormInfoOptions options) {
+        return metrics.timed("FormInfoService.getFormInfos", () -> {
+            var results = new HashMap<Integer, FormInfoResult>();
+            var proceduresByFormName = new LinkedHashMap<String, List<Procedure>>();
+
+            for (var procedureId : new LinkedHashSet<>(procedureIds)) {
+                try {
+                    var procedure = getProcedure(procedureId);
+                    if (null == procedure) {
+                        results.put(procedureId, FormInfoResult.failure(String.format("No such procedure with ID '%d'", procedureId)));
+                    } else {
+                        proceduresByFormName.computeIfAbsent(procedure.getFormName(), key -> new ArrayList<>()).add(procedure);
+                    }
+                } catch (Exception e) {
+                    results.put(procedureId, FormInfoResult.failure(String.format("Cannot load procedure with ID '%d'", procedureId)));
+                }
+            }
+
+            proceduresByFormName.forEach((formName, procedures) -> {
+                FieldDescriptor[] fields;
+                try {
+                    fields = selectFields(formDefinitionRepository.get(formName), options);
+                } catch (Exception e) {
+                    procedures.forEach(procedure -> results.put(
+                            procedure.getId(),
+                            FormInfoResult.failure(String.format("Cannot load form definition of procedure with ID '%d'", procedure.getId()))
+                    ));
+                    return;
+                }
+
+                var readProcedures = new ArrayList<Procedure>(procedures.size());
+                var values = new ArrayList<FieldValue[]>(procedures.size());
+                var catalogueKeys = new ArrayList<CatalogueKey>();
+                procedures.forEach(procedure -> {
+                    try {
+                        var procedureValues = readValues(procedure, fields);
+                        var procedureCatalogueKeys = getCatalogueKeys(procedureValues);
+                        readProcedures.add(procedure);
+                        values.add(procedureValues);
+                        catalogueKeys.addAll(procedureCatalogueKeys);
+                    } catch (Exception e) {
+                        results.put(procedure.getId(), FormInfoResult.failure(String.format("Cannot get content of procedure with ID '%d'", procedure.getId())));
+                    }
+                });
+                var catalogueEntries = propertyCatalogueRepository.getShortDescriptions(catalogueKeys);
+
+                for (int i = 0; i < readProcedures.size(); i++) {
+                    var procedure = readProcedures.get(i);
+                    try {
+                        results.put(procedure.getId(), FormInfoResult.success(formName, getResults(fields, values.get(i), catalogueEntries, options.skipEmptyValues)));
+                    } catch (Exception e) {
+                        results.put(procedure.getId(), FormInfoResult.failure(String.format("Cannot get content of procedure with ID '%d'", procedure.getId())));
+                    }
+                }
+            });
+
+            if (options.resolveReferences) {
+                resolveFormReferences(results.values().stream()
+                        .filter(FormInfoResult::isSuccess)
+                        .map(result -> result.content)
+                        .collect(Collectors.toList()));
+            }
+
+            var orderedResults = new LinkedHashMap<Integer, FormInfoResult>();
+            procedureIds.forEach(procedureId -> orderedResults.put(procedureId, results.get(procedureId)));
+            return orderedResults;
+        }, Map::size);
+    }
+
+    @Override
+    public long exportFormInfos(String formName, FormInfoOptions options, ExportFormat format, OutputStream outputStream) {
+        return metrics.timed("FormInfoService.exportFormInfos", () -> {
+            var sql = "SELECT prozedur.id FROM prozedur " +
+                    "    JOIN data_form ON data_form.id = prozedur.data_form_id " +
+                    "    WHERE data_form.name = ? AND prozedur.id > ? ORDER BY prozedur.id LIMIT ?";
+
+            var formDefinition = formDefinitionRepository.get(formName);
+            var fields = Arrays.stream(selectFields(formDefinition, options))
+                    .filter(field -> field.strategy == ValueStrategy.VALUE)
+                    .toArray(FieldDescriptor[]::new);
+            var writer = ExportWriter.create(
+                    format,
+                    new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)),
+                    fields,
+                    options.skipEmptyValues
+            );
+
+            var exported = 0L;
+            try {
+                writer.writeHeader();
+                var lastProcedureId = 0;
+                List<Integer> page;
+                do {
+                    // Pages are read by key and processed after their result set is closed,
+                    // no other query is executed on the connection while a result set is open
+                    page = jdbcTemplate.queryForList(sql, Integer.class, formName, lastProcedureId, exportPageSize);
+                    for (int i = 0; i < page.size(); i += EXPORT_CHUNK_SIZE) {
+                        exported += exportChunk(page.subList(i, Math.min(i + EXPORT_CHUNK_SIZE, page.size())), formDefinition, fields, writer);
+                    }
+                    if (!page.isEmpty()) {
+                        lastProcedureId = page.get(page.size() - 1);
+                    }
+                } while (page.size() >= exportPageSize);
+                writer.flush();
+            } catch (IOException | UncheckedIOException e) {
+                throw new FormInfoException(String.format("Cannot write export of form '%s'", formName));
+            }
+            return exported;
+        }, result -> (int) Math.min(result, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Exports a chunk of procedures. Values are read from data catalogue tables if configured,
+     * catalogue entries of all procedures in this chunk are resolved in one query.
+     *
+     * @return Number of exported procedures
+     */
+    private int exportChunk(List<Integer> procedureIds, FormDefinition formDefinition, FieldDescriptor[] fields, ExportWriter writer) {
+        var exportedIds = new ArrayList<Integer>(procedureIds.size());
+        var values = new ArrayList<FieldValue[]>(procedureIds.size());
+        var catalogueKeys = new ArrayList<CatalogueKey>();
+
         try {
-            return jdbcTemplate
-                    .queryForObject(sql, (resultSet, i) ->
-                                    resultSet.getInt("hauptprozedur_id")
-                            , procedureId);
-        } catch (Exception e) {
-            throw new FormInfoException(String.format("No main form found for subform with ID '%d'", procedureId));
+            for (var procedureId : procedureIds) {
+                try {
+                    FieldValue[] procedureValues = null;
+                    if (null != jdbcValueReader) {
+                        procedureValues = metrics.timed("JdbcValueReader.read", () -> jdbcValueReader.read(procedureId, formDefinition, fields), result -> 1);
+                    }
+                    if (null == procedureValues) {
+                        var procedure = getProcedure(procedureId);
+                        if (null == procedure) {
+                            writer.writeError(procedureId, String.format("No such procedure with ID '%d'", procedureId));
+                            continue;
+                        }
+                        procedureValues = readValues(procedure, fields);
+                    }
+                    exportedIds.add(procedureId);
+                    values.add(procedureValues);
+                    catalogueKeys.addAll(getCatalogueKeys(procedureValues));
+                } catch (IOException e) {
+                    throw e;
+                } catch (Exception e) {
+                    writer.writeError(procedureId, String.format("Cannot load procedure with ID '%d'", procedureId));
+                }
+            }
+
+            var catalogueEntries = propertyCatalogueRepository.getShortDescriptions(catalogueKeys);
+            for (int i = 0; i < exportedIds.size(); i++) {
+                writer.write(exportedIds.get(i), getResults(fields, values.get(i), catalogueEntries, false));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+        return exportedIds.size();
+    }
+
+    @Override
+    public int getMainFormProcedureId(int procedureId) {
+        return metrics.timed("FormInfoService.getMainFormProcedureId", () -> {
+            var parentId = hierarchyIndex.getParentId(procedureId);
+            if (parentId != ProcedureHierarchyIndex.UNKNOWN) {
+                return parentId;
+            }
+
+            return singleFlight.execute("getMainFormProcedureId:" + procedureId, () -> {
+                var sql = "SELECT hauptprozedur_id FROM prozedur WHERE id = ?";
+                try {
+                    return jdbcTemplate
+                            .queryForObject(sql, (resultSet, i) ->
+                                            resultSet.getInt("hauptprozedur_id")
+                                    , procedureId);
+                } catch (Exception e) {
+                    throw new FormInfoException(String.format("No main form found for subform with ID '%d'", procedureId));
+                }
+            });
+        }, result -> 1);
     }
 
     @Override
     public List<Integer> getSubFormProcedureIds(int procedureId) {
-        var sql = "SELECT id FROM prozedur WHERE hauptprozedur_id = ?";
-        return jdbcTemplate
-                .queryForList(sql, Integer.class, procedureId);
+        return metrics.timed("FormInfoService.getSubFormProcedureIds", () -> {
+            var childIds = hierarchyIndex.getChildIds(procedureId);
+            if (null != childIds) {
+                return Arrays.stream(childIds).boxed().collect(Collectors.toUnmodifiableList());
+            }
+
+            return singleFlight.execute("getSubFormProcedureIds:" + procedureId, () -> {
+                var sql = "SELECT id FROM prozedur WHERE hauptprozedur_id = ?";
+                return List.copyOf(jdbcTemplate
+                        .queryForList(sql, Integer.class, procedureId));
+            });
+        }, List::size);
     }
 
-    private Function<Entry, Result> getResultFunction(Procedure procedure) {
-        return entry -> {
-            var value = procedure.getValue(entry.name);
+    @Override
+    public SubFormNode getSubFormTree(int procedureId) {
+        return metrics.timed(
+                "FormInfoService.getSubFormTree",
+                () -> loadSubFormTree(procedureId, MAX_HIERARCHY_DEPTH),
+                DefaultFormInfoService::countNodes
+        );
+    }
 
-            if (null != value.getDate()) {
-                return new Result(
-                        entry.name,
-                        entry.description,
-                        new SimpleDateFormat("dd.MM.yyyy").format(value.getDate()),
-                        entry.type
-                );
+    /**
+     * Loads the sub form tree of given procedure with one query, descending at most to given depth
+     */
+    private SubFormNode loadSubFormTree(int procedureId, int maxDepth) {
+        var sql = "WITH RECURSIVE tree (id, hauptprozedur_id, depth) AS (" +
+                "    SELECT id, hauptprozedur_id, 0 FROM prozedur WHERE id = ? " +
+                "    UNION ALL " +
+                "    SELECT p.id, p.hauptprozedur_id, tree.depth + 1 FROM prozedur p JOIN tree ON p.hauptprozedur_id = tree.id " +
+                "        WHERE tree.depth < ?" +
+                ") SELECT id, hauptprozedur_id, depth FROM tree ORDER BY depth, id";
+
+        var rows = jdbcTemplate.query(sql, new Object[]{procedureId, maxDepth}, hierarchyRowMapper());
+
+        if (rows.isEmpty()) {
+            throw new FormInfoException(String.format("No such procedure with ID '%d'", procedureId));
+        }
+
+        return buildSubFormTree(procedureId, rows);
+    }
+
+    @Override
+    public int getRootProcedureId(int procedureId) {
+        return metrics.timed("FormInfoService.getRootProcedureId", () -> {
+            var sql = "WITH RECURSIVE chain (id, hauptprozedur_id, depth) AS (" +
+                    "    SELECT id, hauptprozedur_id, 0 FROM prozedur WHERE id = ? " +
+                    "    UNION ALL " +
+                    "    SELECT p.id, p.hauptprozedur_id, chain.depth + 1 FROM prozedur p JOIN chain ON p.id = chain.hauptprozedur_id " +
+                    "        WHERE chain.depth < ?" +
+                    ") SELECT id, hauptprozedur_id, depth FROM chain ORDER BY depth";
+
+            var rows = jdbcTemplate.query(sql, new Object[]{procedureId, MAX_HIERARCHY_DEPTH}, hierarchyRowMapper());
+
+            if (rows.isEmpty()) {
+                throw new FormInfoException(String.format("No such procedure with ID '%d'", procedureId));
+            }
+
+            return findRootProcedureId(rows);
+        }, result -> 1);
+    }
+
+    @Override
+    public CompletableFuture<List<Result>> getFormInfoAsync(int procedureId, FormInfoOptions options) {
+        return executor.submit(() -> getFormInfo(procedureId, options));
+    }
+
+    @Override
+    public CompletableFuture<Map<Integer, FormInfoResult>> getFormInfosAsync(Collection<Integer> procedureIds, FormInfoOptions options) {
+        return executor.submit(() -> getFormInfos(procedureIds, options));
+    }
+
+    @Override
+    public CompletableFuture<Integer> getMainFormProcedureIdAsync(int procedureId) {
+        return executor.submit(() -> getMainFormProcedureId(procedureId));
+    }
+
+    @Override
+    public CompletableFuture<List<Integer>> getSubFormProcedureIdsAsync(int procedureId) {
+        return executor.submit(() -> getSubFormProcedureIds(procedureId));
+    }
+
+    @Override
+    public CompletableFuture<SubFormNode> getSubFormTreeAsync(int procedureId) {
+        return executor.submit(() -> getSubFormTree(procedureId));
+    }
+
+    @Override
+    public CompletableFuture<Integer> getRootProcedureIdAsync(int procedureId) {
+        return executor.submit(() -> getRootProcedureId(procedureId));
+    }
+
+    /**
+     * Starts prewarming of caches in background if enabled
+     */
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        prewarmer.start();
+        hierarchyIndex.start();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+        hierarchyIndex.stop();
+    }
+
+    @Override
+    public void invalidateFormCache(String formName) {
+        if (null == formName || formName.isBlank()) {
+            formDefinitionRepository.clear();
+            propertyCatalogueRepository.clear();
+        } else {
+            formDefinitionRepository.invalidate(formName);
+        }
+        referenceSummaries.clear();
+        if (null != jdbcValueReader) {
+            jdbcValueReader.clear();
+        }
+    }
+
+    /**
+     * Replaces FORM_REFERENCE entries of given contents by entries containing the summary of the referenced form.
+     * Summaries of all referenced procedures are loaded in one batch. Unresolvable references are kept unchanged.
+     */
+    private void resolveFormReferences(Collection<List<Result>> contents) {
+        var procedureIds = new LinkedHashSet<Integer>();
+        contents.forEach(content -> content.forEach(result -> {
+            var referencedProcedureId = getReferencedProcedureId(result);
+            if (null != referencedProcedureId) {
+                procedureIds.add(referencedProcedureId);
             }
+        }));
+        if (procedureIds.isEmpty()) {
+            return;
+        }
 
-            if (null != value.getPropertyCatalogueVersion()) {
-                var catalogueEntry = getPropertyCatalogueEntry(value.getPropertyCatalogueVersion(), value.getString());
-                if (null != catalogueEntry) {
-                    return new Result(entry.name, entry.description, catalogueEntry, entry.type);
+        var summaries = getFormReferenceSummaries(procedureIds);
+        for (var content : contents) {
+            for (int i = 0; i < content.size(); i++) {
+                var summary = summaries.get(getReferencedProcedureId(content.get(i)));
+                if (null != summary) {
+                    content.set(i, new FormReferenceResult(content.get(i), summary));
                 }
             }
+        }
+    }
 
-            return new Result(entry.name, entry.description, value.getValue(), entry.type);
-        };
+    /**
+     * Returns summaries of given procedures. Cached summaries are reused, all other procedures are loaded
+     * and catalogue entries of all summaries are resolved in one query.
+     */
+    private Map<Integer, FormReferenceSummary> getFormReferenceSummaries(Collection<Integer> procedureIds) {
+        var result = new HashMap<Integer, FormReferenceSummary>();
+        var procedures = new HashMap<Integer, Procedure>();
+        var procedureIdsByFormName = new LinkedHashMap<String, List<Integer>>();
+
+        for (var procedureId : procedureIds) {
+            var summary = referenceSummaries.get(procedureId);
+            if (null != summary) {
+                result.put(procedureId, summary);
+                continue;
+            }
+            try {
+                var procedure = getProcedure(procedureId);
+                if (null != procedure) {
+                    procedures.put(procedureId, procedure);
+                    procedureIdsByFormName.computeIfAbsent(procedure.getFormName(), key -> new ArrayList<>()).add(procedureId);
+                }
+            } catch (Exception e) {
+                // Keep reference unresolved
+            }
+        }
+
+        var fieldsByFormName = new HashMap<String, FieldDescriptor[]>();
+        var values = new HashMap<Integer, FieldValue[]>();
+        var catalogueKeys = new ArrayList<CatalogueKey>();
+        procedureIdsByFormName.forEach((formName, ids) -> {
+            FieldDescriptor[] fields;
+            try {
+                fields = getSummaryFields(formName);
+            } catch (Exception e) {
+                // Keep references to procedures of this form unresolved
+                return;
+            }
+            fieldsByFormName.put(formName, fields);
+            ids.forEach(procedureId -> {
+                try {
+                    var procedureValues = readValues(procedures.get(procedureId), fields);
+                    var procedureCatalogueKeys = getCatalogueKeys(procedureValues);
+                    values.put(procedureId, procedureValues);
+                    catalogueKeys.addAll(procedureCatalogueKeys);
+                } catch (Exception e) {
+                    // Keep reference unresolved
+                }
+            });
+        });
+        var catalogueEntries = propertyCatalogueRepository.getShortDescriptions(catalogueKeys);
+
+        procedureIdsByFormName.forEach((formName, ids) -> ids.forEach(procedureId -> {
+            var procedureValues = values.get(procedureId);
+            if (null == procedureValues) {
+                return;
+            }
+            var summaryFields = new LinkedHashMap<String, Object>();
+            getResults(fieldsByFormName.get(formName), procedureValues, catalogueEntries, false)
+                    .forEach(fieldResult -> summaryFields.put(fieldResult.field, fieldResult.value));
+            var summary = new FormReferenceSummary(procedureId, formName, summaryFields);
+            referenceSummaries.put(procedureId, summary);
+            result.put(procedureId, summary);
+        }));
+
+        return result;
     }
 
-    private String getPropertyCatalogueEntry(String propertyCatalogueVersionEntry, String code) {
-        var sql = "SELECT shortdesc FROM property_catalogue_version_entry WHERE property_version_id = ? AND code = ? LIMIT 1";
-        var shortdesc = jdbcTemplate.query(sql, new Object[]{propertyCatalogueVersionEntry, code}, (resultSet, i) -> resultSet.getString("shortdesc"));
-        if (shortdesc.size() > 0) {
-            return shortdesc.get(0);
+    /**
+     * Returns configured summary fields of given form. Uses summary fields configured for all forms
+     * if there are no summary fields for given form.
+     */
+    private FieldDescriptor[] getSummaryFields(String formName) {
+        var fieldNames = settings.getStringList(FormInfoSettings.REFERENCE_SUMMARY_FIELDS + "." + formName);
+        if (fieldNames.isEmpty()) {
+            fieldNames = settings.getStringList(FormInfoSettings.REFERENCE_SUMMARY_FIELDS);
         }
-        return null;
+        if (fieldNames.isEmpty()) {
+            return new FieldDescriptor[0];
+        }
+        return selectFields(formDefinitionRepository.get(formName), FormInfoOptions.builder().fieldNames(fieldNames).build());
     }
 
-    private List<Entry> getDataFormEntry(Procedure procedure, Integer parentId) {
-        var formName = procedure.getFormName();
+    /**
+     * Returns the ID of the procedure referenced by a FORM_REFERENCE entry or null
+     */
+    static Integer getReferencedProcedureId(Result result) {
+        if (result.type != Type.FORM_REFERENCE || null == result.value) {
+            return null;
+        }
 
-        var sql = "SELECT dfe.id, dfe.name, dfe.type, dfe.description, dfe.element_parent_id FROM data_form " +
-                "    JOIN data_form_entry dfe ON data_form.id = dfe.data_form_id " +
-                "    WHERE data_form.name = ? AND dfe.element_parent_id = ? ORDER BY dfe.position";
+        var value = result.value;
+        if (value instanceof Procedure) {
+            value = ((Procedure) value).getId();
+        } else if (value instanceof Map) {
+            value = ((Map<?, ?>) value).get("id");
+        }
 
-        var variables = new Object[]{formName, parentId};
+        Integer procedureId = null;
+        if (value instanceof Number) {
+            procedureId = ((Number) value).intValue();
+        } else if (null != value) {
+            try {
+                procedureId = Integer.parseInt(value.toString().trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null != procedureId && procedureId > 0 ? procedureId : null;
+    }
+
+    /**
+     * Returns the content of given form and inlines the content of its sub forms.
+     * All procedures of the sub form tree are loaded in one batch.
+     */
+    private List<Result> getFormInfoWithSubForms(int procedureId, FormInfoOptions options) {
+        var depth = Math.min(options.subFormDepth, maxSubFormDepth);
+        var tree = loadSubFormTree(procedureId, depth);
 
-        if (parentId == null) {
-            sql = "SELECT dfe.id, dfe.name, dfe.description, dfe.type, dfe.element_parent_id FROM data_form " +
-                    "    JOIN data_form_entry dfe ON data_form.id = dfe.data_form_id " +
-                    "    WHERE data_form.name = ? AND dfe.element_parent_id IS NULL ORDER BY dfe.position";
+        var procedureIds = new ArrayList<Integer>();
+        collectProcedureIds(tree, depth, procedureIds);
+
+        var contents = getFormInfos(procedureIds, options.toBuilder().subFormDepth(0).build());
+        var root = contents.get(procedureId);
+        if (!root.isSuccess()) {
+            throw new FormInfoException(root.error);
+        }
+
+        return inlineSubForms(tree, depth, contents, formName -> formDefinitionRepository.get(formName).subFormTargets);
+    }
+
+    private static void collectProcedureIds(SubFormNode node, int depth, List<Integer> target) {
+        target.add(node.procedureId);
+        if (depth > 0) {
+            node.subForms.forEach(subForm -> collectProcedureIds(subForm, depth - 1, target));
+        }
+    }
+
+    /**
+     * Places the content of sub forms under SUBFORM entries. A sub form is placed under the only SUBFORM entry
+     * of the content referencing the form of the sub form. All other sub forms are placed in an additional entry
+     * named {@link #UNASSIGNED_SUB_FORMS} at the end of the content.
+     *
+     * @param subFormTargets Returns names of forms referenced by SUBFORM entries by entry name for a form name
+     */
+    static List<Result> inlineSubForms(
+            SubFormNode node,
+            int depth,
+            Map<Integer, FormInfoResult> contents,
+            Function<String, Map<String, String>> subFormTargets
+    ) {
+        var formContent = contents.get(node.procedureId);
+        var content = formContent.content;
+        if (depth <= 0 || node.subForms.isEmpty()) {
+            return content;
+        }
+
+        var targets = subFormTargets.apply(formContent.formName);
+        var subFormEntriesByFormName = new HashMap<String, List<Integer>>();
+        for (int i = 0; i < content.size(); i++) {
+            var target = content.get(i).type == Type.SUBFORM ? targets.get(content.get(i).field) : null;
+            if (null != target) {
+                subFormEntriesByFormName.computeIfAbsent(target, key -> new ArrayList<>()).add(i);
+            }
+        }
+
+        var subFormsByEntry = new HashMap<Integer, Map<Integer, FormInfoResult>>();
+        var unassignedSubForms = new LinkedHashMap<Integer, FormInfoResult>();
+        for (var subForm : node.subForms) {
+            var subFormContent = contents.get(subForm.procedureId);
+            if (null != subFormContent && subFormContent.isSuccess()) {
+                subFormContent = FormInfoResult.success(subFormContent.formName, inlineSubForms(subForm, depth - 1, contents, subFormTargets));
+            }
+
+            var entries = null == subFormContent || null == subFormContent.formName
+                    ? null
+                    : subFormEntriesByFormName.get(subFormContent.formName);
+            if (null == entries || entries.size() != 1) {
+                unassignedSubForms.put(subForm.procedureId, subFormContent);
+            } else {
+                subFormsByEntry.computeIfAbsent(entries.get(0), key -> new LinkedHashMap<>()).put(subForm.procedureId, subFormContent);
+            }
+        }
+
+        var result = new ArrayList<>(content);
+        subFormsByEntry.forEach((index, subForms) -> result.set(index, new SubFormResult(content.get(index), subForms)));
+        if (!unassignedSubForms.isEmpty()) {
+            result.add(new SubFormResult(new Result(UNASSIGNED_SUB_FORMS, "Nicht zugeordnete Unterformulare", null, Type.SUBFORM), unassignedSubForms));
+        }
+        return result;
+    }
 
-            variables = new Object[]{formName};
+    /**
+     * Returns fingerprint of the content of a procedure without loading the procedure.
+     * Uses procedure ID, last modification, form name, form definition version and requested options.
+     * If sub forms are requested, the procedure ID, last modification and form of each inlined sub form are used as well.
+     */
+    private String getFingerprint(int procedureId, FormInfoOptions options) {
+        String[] state;
+        try {
+            state = jdbcTemplate.queryForObject(
+                    procedureStateSql,
+                    (resultSet, i) -> new String[]{resultSet.getString("modified_at"), resultSet.getString("form_name")},
+                    procedureId
+            );
+        } catch (Exception e) {
+            throw new FormInfoException(String.format("No such procedure with ID '%d'", procedureId));
         }
 
-        return jdbcTemplate.query(
-                sql,
-                variables,
-                (resultSet, i) -> {
-                    var id = resultSet.getInt("id");
-                    var children = getDataFormEntry(procedure, id);
-                    return new Entry(
-                            resultSet.getString("name"),
-                            resultSet.getString("description"),
-                            Type.from(resultSet.getString("type")),
-                            children
-                    );
+        var parts = new ArrayList<String>();
+        parts.add(String.valueOf(procedureId));
+        parts.add(state[0]);
+        parts.add(state[1]);
+        parts.add(formDefinitionRepository.get(state[1]).version);
+        parts.add(options.key());
+
+        if (options.subFormDepth > 0) {
+            var procedureIds = new ArrayList<Integer>();
+            var depth = Math.min(options.subFormDepth, maxSubFormDepth);
+            collectProcedureIds(loadSubFormTree(procedureId, depth), depth, procedureIds);
+            procedureIds.remove(0);
+            if (!procedureIds.isEmpty()) {
+                var states = getProcedureStates(procedureIds);
+                for (var subFormProcedureId : procedureIds) {
+                    var subFormState = states.get(subFormProcedureId);
+                    parts.add(subFormProcedureId + "\t" + (null == subFormState
+                            ? "-"
+                            : subFormState[0] + "\t" + subFormState[1] + "\t" + formDefinitionRepository.get(subFormState[1]).version
+                    ));
                 }
+            }
+        }
+
+        return fingerprint(parts.toArray(new String[0]));
+    }
+
+    /**
+     * Returns last modification and form name of given procedures using one query
+     */
+    private Map<Integer, String[]> getProcedureStates(List<Integer> procedureIds) {
+        var sql = procedureStatesSql + String.join(",", Collections.nCopies(procedureIds.size(), "?")) + ")";
+        var result = new HashMap<Integer, String[]>();
+        jdbcTemplate.query(sql, procedureIds.toArray(), (RowCallbackHandler) resultSet -> result.put(
+                resultSet.getInt("id"),
+                new String[]{resultSet.getString("modified_at"), resultSet.getString("form_name")}
+        ));
+        return result;
+    }
+
+    static String fingerprint(String... parts) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256")
+                    .digest(String.join("\n", parts).getBytes(StandardCharsets.UTF_8));
+            var result = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                result.append(String.format("%02x", digest[i]));
+            }
+            return result.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Procedure getProcedure(int procedureId) {
+        return metrics.timed("IOnkostarApi.getProcedure", () -> onkostarApi.getProcedure(procedureId), result -> 1);
+    }
+
+    private static int countNodes(SubFormNode node) {
+        var result = 1;
+        for (var subForm : node.subForms) {
+            result += countNodes(subForm);
+        }
+        return result;
+    }
+
+    private static RowMapper<HierarchyRow> hierarchyRowMapper() {
+        return (resultSet, i) -> {
+            var parentId = resultSet.getInt("hauptprozedur_id");
+            var hasParent = !resultSet.wasNull() && parentId != 0;
+            return new HierarchyRow(
+                    resultSet.getInt("id"),
+                    hasParent ? parentId : null,
+                    resultSet.getInt("depth")
+            );
+        };
+    }
+
+    /**
+     * Builds tree of sub forms. Rows are expected to be ordered by depth.
+     * Procedures already contained in the tree are ignored to prevent cycles.
+     */
+    static SubFormNode buildSubFormTree(int procedureId, List<HierarchyRow> rows) {
+        var visited = new HashSet<Integer>();
+        var children = new HashMap<Integer, List<Integer>>();
+        visited.add(procedureId);
+        for (var row : rows) {
+            if (row.depth > 0 && visited.contains(row.parentId) && visited.add(row.id)) {
+                children.computeIfAbsent(row.parentId, key -> new ArrayList<>()).add(row.id);
+            }
+        }
+        return buildSubFormNode(procedureId, children);
+    }
+
+    private static SubFormNode buildSubFormNode(int procedureId, Map<Integer, List<Integer>> children) {
+        return new SubFormNode(
+                procedureId,
+                children.getOrDefault(procedureId, List.of()).stream()
+                        .map(childId -> buildSubFormNode(childId, children))
+                        .collect(Collectors.toList())
         );
     }
 
+    /**
+     * Finds the root procedure ID in ancestor chain. Rows are expected to be ordered by depth.
+     */
+    static int findRootProcedureId(List<HierarchyRow> rows) {
+        var visited = new HashSet<Integer>();
+        for (var row : rows) {
+            if (!visited.add(row.id)) {
+                throw new FormInfoException(String.format("Cyclic main form reference found for procedure with ID '%d'", row.id));
+            }
+            if (null == row.parentId) {
+                return row.id;
+            }
+        }
+
+        var last = rows.get(rows.size() - 1);
+        if (last.depth >= MAX_HIERARCHY_DEPTH) {
+            throw new FormInfoException(String.format("Maximum form hierarchy depth exceeded for procedure with ID '%d'", rows.get(0).id));
+        }
+        // Referenced main form does not exist
+        return last.id;
+    }
+
+    /**
+     * Selects the fields requested by given options. Returns all fields without copying if nothing is filtered.
+     */
+    static FieldDescriptor[] selectFields(FormDefinition formDefinition, FormInfoOptions options) {
+        if (options.isUnfiltered()) {
+            return formDefinition.fields;
+        }
+        return Arrays.stream(formDefinition.fields)
+                .filter(field -> options.isRequested(field.name, field.type))
+                .toArray(FieldDescriptor[]::new);
+    }
+
+    /**
+     * Reads the values of all given fields which have a value
+     */
+    private static FieldValue[] readValues(Procedure procedure, FieldDescriptor[] fields) {
+        var values = new FieldValue[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i].strategy == ValueStrategy.VALUE) {
+                values[i] = FieldValue.of(procedure.getValue(fields[i].name));
+            }
+        }
+        return values;
+    }
+
+    private static List<CatalogueKey> getCatalogueKeys(FieldValue[] values) {
+        var result = new ArrayList<CatalogueKey>();
+        for (var value : values) {
+            if (null == value || null != value.date || null == value.propertyCatalogueVersion) {
+                continue;
+            }
+            if (null != value.codes) {
+                value.codes.forEach(code -> result.add(new CatalogueKey(value.propertyCatalogueVersion, code)));
+            } else {
+                result.add(new CatalogueKey(value.propertyCatalogueVersion, value.string));
+            }
+        }
+        return result;
+    }
+
+    private static List<Result> getResults(
+            FieldDescriptor[] fields,
+            FieldValue[] values,
+            Map<CatalogueKey, String> catalogueEntries,
+            boolean skipEmptyValues
+    ) {
+        var result = new ArrayList<Result>(fields.length);
+
+        for (int i = 0; i < fields.length; i++) {
+            var field = fields[i];
+            var value = values[i];
+
+            if (skipEmptyValues && field.strategy == ValueStrategy.VALUE && field.type != Type.SUBFORM
+                    && (null == value || value.isEmpty())) {
+                continue;
+            }
+
+            result.add(new Result(field.name, field.description, field.formatter.format(value, catalogueEntries), field.type));
+        }
+
+        return result;
+    }
+
     static List<Entry> flattenEntry(Entry element) {
         var result = new ArrayList<Entry>();
-        result.add(element);
-        result.addAll(element.children
-                .stream().flatMap(e -> flattenEntry(e).stream())
-                .collect(Collectors.toList()));
+        flattenEntry(element, result);
         return result;
     }
 
+    static void flattenEntry(Entry element, List<Entry> target) {
+        target.add(element);
+        for (var child : element.children) {
+            flattenEntry(child, target);
+        }
+    }
+
+    private static class FormContent {
+        public final FormDefinition formDefinition;
+        public final FieldDescriptor[] fields;
+        public final List<Result> results;
+
+        FormContent(FormDefinition formDefinition, FieldDescriptor[] fields, List<Result> results) {
+            this.formDefinition = formDefinition;
+            this.fields = fields;
+            this.results = results;
+        }
+    }
+
+    static class HierarchyRow {
+        public final int id;
+        public final Integer parentId;
+        public final int depth;
+
+        HierarchyRow(int id, Integer parentId, int depth) {
+            this.id = id;
+            this.parentId = parentId;
+            this.depth = depth;
+        }
+    }
+
     static class Entry {
         public final String name;
         public final String description;
         public final Type type;
-        public final List<Entry> children = new ArrayList<>();
+        public final List<Entry> children;
+
+        /**
+         * Type of the form entry as stored in database, used to select the value formatter
+         */
+        public final String dataType;
 
         Entry(String name, String description, Type type) {
             this(name, description, type, List.of());
         }
 
         Entry(String name, String description, Type type, List<Entry> children) {
+            this(name, description, type, null, children);
+        }
+
+        Entry(String name, String description, Type type, String dataType, List<Entry> children) {
             this.name = name;
             this.description = description;
             this.type = type;
-            this.children.addAll(children);
+            this.dataType = dataType;
+            this.children = List.copyOf(children);
         }
     }
 
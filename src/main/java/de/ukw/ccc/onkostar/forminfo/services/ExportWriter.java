@@ -0,0 +1,260 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Comprehensive Cancer Center Mainfranken
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.ukw.ccc.onkostar.forminfo.services;
+
+import de.ukw.ccc.onkostar.forminfo.ExportFormat;
+import de.ukw.ccc.onkostar.forminfo.Result;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Writes exported form contents incrementally, one line per procedure
+ *
+ * @author Paul-Christian Volkmer
+ * @since 0.2.0
+ */
+abstract class ExportWriter {
+
+    protected final Writer writer;
+
+    protected final FieldDescriptor[] fields;
+
+    private ExportWriter(final Writer writer, final FieldDescriptor[] fields) {
+        this.writer = writer;
+        this.fields = fields;
+    }
+
+    /**
+     * Creates a new export writer
+     *
+     * @param format          The output format
+     * @param writer          The target writer
+     * @param fields          The exported fields
+     * @param skipEmptyValues Skip fields without value if supported by output format
+     * @return The export writer
+     */
+    static ExportWriter create(ExportFormat format, Writer writer, FieldDescriptor[] fields, boolean skipEmptyValues) {
+        switch (format) {
+            case CSV:
+                return new CsvExportWriter(writer, fields);
+            case NDJSON:
+            default:
+                return new NdjsonExportWriter(writer, fields, skipEmptyValues);
+        }
+    }
+
+    abstract void writeHeader() throws IOException;
+
+    /**
+     * Writes the content of a procedure. Results are expected to match exported fields.
+     */
+    abstract void write(int procedureId, List<Result> content) throws IOException;
+
+    abstract void writeError(int procedureId, String error) throws IOException;
+
+    void flush() throws IOException {
+        writer.flush();
+    }
+
+    static class NdjsonExportWriter extends ExportWriter {
+
+        private final boolean skipEmptyValues;
+
+        NdjsonExportWriter(final Writer writer, final FieldDescriptor[] fields, final boolean skipEmptyValues) {
+            super(writer, fields);
+            this.skipEmptyValues = skipEmptyValues;
+        }
+
+        @Override
+        void writeHeader() {
+            // No header line in NDJSON
+        }
+
+        @Override
+        void write(int procedureId, List<Result> content) throws IOException {
+            writer.write("{\"procedureId\":");
+            writer.write(Integer.toString(procedureId));
+            writer.write(",\"content\":{");
+            var first = true;
+            for (var result : content) {
+                if (skipEmptyValues && isEmpty(result.value)) {
+                    continue;
+                }
+                if (!first) {
+                    writer.write(',');
+                }
+                first = false;
+                writeJsonString(result.field);
+                writer.write(':');
+                writeJsonValue(result.value);
+            }
+            writer.write("}}\n");
+        }
+
+        @Override
+        void writeError(int procedureId, String error) throws IOException {
+            writer.write("{\"procedureId\":");
+            writer.write(Integer.toString(procedureId));
+            writer.write(",\"error\":");
+            writeJsonString(error);
+            writer.write("}\n");
+        }
+
+        private void writeJsonValue(Object value) throws IOException {
+            if (null == value) {
+                writer.write("null");
+            } else if (value instanceof Boolean
+                    || value instanceof Number && Double.isFinite(((Number) value).doubleValue())) {
+                writer.write(value.toString());
+            } else if (value instanceof Collection) {
+                writer.write('[');
+                var first = true;
+                for (var item : (Collection<?>) value) {
+                    if (!first) {
+                        writer.write(',');
+                    }
+                    writeJsonValue(item);
+                    first = false;
+                }
+                writer.write(']');
+            } else if (value instanceof Map) {
+                writer.write('{');
+                var first = true;
+                for (var entry : ((Map<?, ?>) value).entrySet()) {
+                    if (!first) {
+                        writer.write(',');
+                    }
+                    writeJsonString(String.valueOf(entry.getKey()));
+                    writer.write(':');
+                    writeJsonValue(entry.getValue());
+                    first = false;
+                }
+                writer.write('}');
+            } else {
+                writeJsonString(value.toString());
+            }
+        }
+
+        private void writeJsonString(String value) throws IOException {
+            writer.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                var c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                        writer.write("\\\"");
+                        break;
+                    case '\\':
+                        writer.write("\\\\");
+                        break;
+                    case '\n':
+                        writer.write("\\n");
+                        break;
+                    case '\r':
+                        writer.write("\\r");
+                        break;
+                    case '\t':
+                        writer.write("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            writer.write(String.format("\\u%04x", (int) c));
+                        } else {
+                            writer.write(c);
+                        }
+                }
+            }
+            writer.write('"');
+        }
+
+        private static boolean isEmpty(Object value) {
+            return null == value
+                    || value instanceof String && ((String) value).isBlank()
+                    || value instanceof Collection && ((Collection<?>) value).isEmpty();
+        }
+    }
+
+    /**
+     * Writes one CSV row per procedure. The last column contains the error of procedures that cannot be exported,
+     * all other columns of such rows are empty.
+     */
+    static class CsvExportWriter extends ExportWriter {
+
+        CsvExportWriter(final Writer writer, final FieldDescriptor[] fields) {
+            super(writer, fields);
+        }
+
+        @Override
+        void writeHeader() throws IOException {
+            writer.write("procedureId");
+            for (var field : fields) {
+                writer.write(',');
+                writeCsvValue(field.name);
+            }
+            writer.write(",error\r\n");
+        }
+
+        @Override
+        void write(int procedureId, List<Result> content) throws IOException {
+            writer.write(Integer.toString(procedureId));
+            for (var result : content) {
+                writer.write(',');
+                writeCsvValue(result.value);
+            }
+            writer.write(",\r\n");
+        }
+
+        @Override
+        void writeError(int procedureId, String error) throws IOException {
+            writer.write(Integer.toString(procedureId));
+            for (int i = 0; i < fields.length; i++) {
+                writer.write(',');
+            }
+            writer.write(',');
+            writeCsvValue(error);
+            writer.write("\r\n");
+        }
+
+        private void writeCsvValue(Object value) throws IOException {
+            if (null == value) {
+                return;
+            }
+            var string = value instanceof Collection
+                    ? ((Collection<?>) value).stream().map(String::valueOf).collect(Collectors.joining("; "))
+                    : value.toString();
+            if (string.indexOf(',') < 0 && string.indexOf('"') < 0 && string.indexOf('\n') < 0 && string.indexOf('\r') < 0) {
+                writer.write(string);
+                return;
+            }
+            writer.write('"');
+            writer.write(string.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Comprehensive Cancer Center Mainfranken
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.ukw.ccc.onkostar.forminfo.services;
+
+import de.ukw.ccc.onkostar.forminfo.Type;
+
+/**
+ * Compiled descriptor of a single form field including its value handling strategy
+ *
+ * @author Paul-Christian Volkmer
+ * @since 0.2.0
+ */
+class FieldDescriptor {
+    public final String name;
+    public final String description;
+    public final Type type;
+    public final ValueStrategy strategy;
+    public final ValueFormatter formatter;
+
+    FieldDescriptor(String name, String description, Type type) {
+        this(name, description, type, null);
+    }
+
+    FieldDescriptor(String name, String description, Type type, String dataType) {
+        this.name = name;
+        this.description = description;
+        this.type = type;
+        this.strategy = ValueStrategy.from(type);
+        this.formatter = ValueFormatter.from(type, dataType);
+    }
+
+    enum ValueStrategy {
+        /**
+         * Structural field without value, the procedure value will not be read
+         */
+        NONE,
+        /**
+         * Field value will be read and converted depending on its content
+         */
+        VALUE;
+
+        static ValueStrategy from(Type type) {
+            switch (type) {
+                case BUTTON:
+                case GROUP:
+                case SECTION:
+                    return NONE;
+                default:
+                    return VALUE;
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Comprehensive Cancer Center Mainfranken
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.ukw.ccc.onkostar.forminfo.services;
+
+import de.itc.onkostar.api.Item;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Raw value of a form field independent of its source
+ *
+ * @author Paul-Christian Volkmer
+ * @since 0.2.0
+ */
+class FieldValue {
+    public final Object value;
+    public final String string;
+    public final Date date;
+    public final String propertyCatalogueVersion;
+
+    /**
+     * Codes of a catalogue field with multiple values, null for other fields
+     */
+    public final List<String> codes;
+
+    FieldValue(Object value, String string, Date date, String propertyCatalogueVersion) {
+        this.value = value;
+        this.string = string;
+        this.date = date;
+        this.propertyCatalogueVersion = propertyCatalogueVersion;
+        this.codes = null == propertyCatalogueVersion ? null : toCodes(value);
+    }
+
+    private static List<String> toCodes(Object value) {
+        if (value instanceof Collection) {
+            return ((Collection<?>) value).stream().map(String::valueOf).collect(Collectors.toUnmodifiableList());
+        }
+        if (value instanceof Object[]) {
+            return Arrays.stream((Object[]) value).map(String::valueOf).collect(Collectors.toUnmodifiableList());
+        }
+        return null;
+    }
+
+    /**
+     * Creates field value of a procedure item. The string value is only read for catalogue entries.
+     *
+     * @param item The item or null
+     * @return The field value or null if there is no item
+     */
+    static FieldValue of(Item item) {
+        if (null == item) {
+            return null;
+        }
+        var date = item.getDate();
+        var propertyCatalogueVersion = null == date ? item.getPropertyCatalogueVersion() : null;
+        var string = null == propertyCatalogueVersion ? null : item.getString();
+        return new FieldValue(item.getValue(), string, date, propertyCatalogueVersion);
+    }
+
+    boolean isEmpty() {
+        return null == value
+                || value instanceof String && ((String) value).isBlank()
+                || value instanceof Collection && ((Collection<?>) value).isEmpty();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Comprehensive Cancer Center Mainfranken
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.ukw.ccc.onkostar.forminfo.services;
+
+import de.ukw.ccc.onkostar.forminfo.services.DefaultFormInfoService.Entry;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable definition of a form containing its tree of form entries and
+ * the compiled, pre-ordered field descriptors used to build results.
+ * The version is used to detect changes of the form definition in database.
+ *
+ * @author Paul-Christian Volkmer
+ * @since 0.2.0
+ */
+class FormDefinition {
+    public final String formName;
+    public final List<Entry> entries;
+    public final String version;
+
+    /**
+     * Names of the forms referenced by SUBFORM entries by entry name
+     */
+    public final Map<String, String> subFormTargets;
+
+    final FieldDescriptor[] fields;
+
+    /**
+     * Field descriptor of each form entry
+     */
+    private final Map<Entry, FieldDescriptor> descriptors = new IdentityHashMap<>();
+
+    /**
+     * Fingerprint of names, descriptions, types and order of all fields
+     */
+    final String schemaVersion;
+
+    /**
+     * Time of last version check as returned by {@link System#nanoTime()}
+     */
+    final AtomicLong lastVersionCheck = new AtomicLong(System.nanoTime());
+
+    FormDefinition(String formName, List<Entry> entries) {
+        this(formName, entries, "");
+    }
+
+    FormDefinition(String formName, List<Entry> entries, String version) {
+        this(formName, entries, version, Map.of());
+    }
+
+    FormDefinition(String formName, List<Entry> entries, String version, Map<String, String> subFormTargets) {
+        this.formName = formName;
+        this.entries = List.copyOf(entries);
+        this.version = version;
+        this.subFormTargets = Map.copyOf(subFormTargets);
+        this.fields = compile(this.entries, this.descriptors);
+        this.schemaVersion = schemaVersion(this.fields);
+    }
+
+    private static String schemaVersion(FieldDescriptor[] fields) {
+        var parts = new String[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            parts[i] = fields[i].name + "\t" + fields[i].description + "\t" + fields[i].type;
+        }
+        return DefaultFormInfoService.fingerprint(parts);
+    }
+
+    FieldDescriptor getDescriptor(Entry entry) {
+        return descriptors.get(entry);
+    }
+
+    private static FieldDescriptor[] compile(List<Entry> entries, Map<Entry, FieldDescriptor> descriptors) {
+        var flatEntries = new ArrayList<Entry>();
+        entries.forEach(entry -> DefaultFormInfoService.flattenEntry(entry, flatEntries));
+
+        var result = new FieldDescriptor[flatEntries.size()];
+        for (int i = 0; i < result.length; i++) {
+            var entry = flatEntries.get(i);
+            result[i] = new FieldDescriptor(entry.name, entry.description, entry.type, entry.dataType);
+            descriptors.put(entry, result[i]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Comprehensive Cancer Center Mainfranken
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.ukw.ccc.onkostar.forminfo.services;
+
+import de.ukw.ccc.onkostar.forminfo.Type;
+import de.ukw.ccc.onkostar.forminfo.services.DefaultFormInfoService.Entry;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Repository to load form definitions using a single query per form and to cache them by form name.
+ * Cached definitions expire after configured TTL. In addition, a version marker of a cached definition
+ * is queried at most once per configured interval and the definition is reloaded if the marker changed.
+ *
+ * @author Paul-Christian Volkmer
+ * @since 0.2.0
+ */
+class FormDefinitionRepository {
+
+    static final int DEFAULT_CACHE_SIZE = 1000;
+
+    static final Duration DEFAULT_CACHE_TTL = Duration.ofHours(1);
+
+    static final Duration DEFAULT_VERSION_CHECK_INTERVAL = Duration.ofSeconds(30);
+
+    static final String DEFAULT_SUB_FORM_REFERENCE_COLUMN = "referenced_data_form_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final LruCache<String, FormDefinition> cache;
+
+    private final long versionCheckIntervalNanos;
+
+    private final String subFormTargetsSql;
+
+    private final String versionSql;
+
+    private final String versionWithoutSubFormTargetsSql;
+
+    private volatile boolean subFormReferenceColumnAvailable = true;
+
+    FormDefinitionRepository(final JdbcTemplate jdbcTemplate, final FormInfoSettings settings) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cache = new LruCache<>(
+                settings.getInt(FormInfoSettings.FORM_CACHE_SIZE, DEFAULT_CACHE_SIZE),
+                settings.getDuration(FormInfoSettings.FORM_CACHE_TTL, DEFAULT_CACHE_TTL)
+        );
+        this.versionCheckIntervalNanos = settings
+                .getDuration(FormInfoSettings.FORM_CACHE_VERSION_CHECK_INTERVAL, DEFAULT_VERSION_CHECK_INTERVAL)
+                .toNanos();
+        var subFormReferenceColumn = settings.getString(FormInfoSettings.SUB_FORM_REFERENCE_COLUMN, DEFAULT_SUB_FORM_REFERENCE_COLUMN);
+        if (!subFormReferenceColumn.matches("[A-Za-z_][A-Za-z0-9_]*")) {
+            throw new IllegalArgumentException(String.format("Invalid sub form reference column '%s'", subFormReferenceColumn));
+        }
+        this.subFormTargetsSql = "SELECT dfe.name, referenced_form.name AS referenced_form_name FROM data_form " +
+                "    JOIN data_form_entry dfe ON data_form.id = dfe.data_form_id " +
+                "    JOIN data_form referenced_form ON referenced_form.id = dfe." + subFormReferenceColumn +
+                "    WHERE data_form.name = ? AND dfe.type = 'subform'";
+        this.versionWithoutSubFormTargetsSql = versionSql(null);
+        this.versionSql = versionSql(subFormReferenceColumn);
+    }
+
+    /**
+     * Creates a query for the version marker of a form. The marker consists of aggregates over
+     * all form entries of the form, weighted by entry ID: Number of entries, max ID, positions, parents,
+     * the length and first character of name, description and type and the referenced form of SUBFORM entries.
+     * Changes of a text keeping its length and first character are not detected before the cache TTL expires.
+     */
+    private static String versionSql(String subFormReferenceColumn) {
+        return "SELECT COUNT(*) AS entries, MAX(dfe.id) AS max_id, " +
+                "    SUM(dfe.id * dfe.position) AS positions, " +
+                "    SUM(dfe.id * COALESCE(dfe.element_parent_id, 0)) AS parents, " +
+                "    " + textAggregate("name") + " AS names, " +
+                "    " + textAggregate("description") + " AS descriptions, " +
+                "    " + textAggregate("type") + " AS types" +
+                (null == subFormReferenceColumn ? "" : ", SUM(dfe.id * COALESCE(dfe." + subFormReferenceColumn + ", 0)) AS sub_form_targets") +
+                "    FROM data_form JOIN data_form_entry dfe ON data_form.id = dfe.data_form_id " +
+                "    WHERE data_form.name = ?";
+    }
+
+    private static String textAggregate(String column) {
+        return "SUM(dfe.id * COALESCE(CHAR_LENGTH(dfe." + column + ") * 256 + ASCII(dfe." + column + "), 0))";
+    }
+
+    /**
+     * Returns the cached form definition or loads it from database
+     *
+     * @param formName The name of the form
+     * @return The form definition
+     */
+    FormDefinition get(String formName) {
+        var formDefinition = cache.computeIfAbsent(formName, this::load);
+
+        var lastVersionCheck = formDefinition.lastVersionCheck.get();
+        var now = System.nanoTime();
+        // Only one thread will check the version of a form definition per interval
+        if (now - lastVersionCheck >= versionCheckIntervalNanos
+                && formDefinition.lastVersionCheck.compareAndSet(lastVersionCheck, now)) {
+            if (!Objects.equals(formDefinition.version, loadVersion(formName))) {
+                formDefinition = load(formName);
+                cache.put(formName, formDefinition);
+            }
+        }
+
+        return formDefinition;
+    }
+
+    /**
+     * Removes cached form definition of given form
+     *
+     * @param formName The name of the form
+     */
+    void invalidate(String formName) {
+        cache.remove(formName);
+    }
+
+    void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Loads the version marker of a form using a single aggregate query.
+     * Falls back to a marker without referenced forms of SUBFORM entries
+     * if the configured reference column does not exist.
+     *
+     * @param formName The name of the form
+     * @return The version marker
+     */
+    String loadVersion(String formName) {
+        if (subFormReferenceColumnAvailable) {
+            try {
+                return version(jdbcTemplate.queryForMap(versionSql, formName));
+            } catch (BadSqlGrammarException e) {
+                subFormReferenceColumnAvailable = false;
+            }
+        }
+        return version(jdbcTemplate.queryForMap(versionWithoutSubFormTargetsSql, formName));
+    }
+
+    private static String version(Map<String, Object> row) {
+        return row.values().stream().map(String::valueOf).collect(Collectors.joining(":"));
+    }
+
+    LruCache<?, ?> getCache() {
+        return cache;
+    }
+
+    private FormDefinition load(String formName) {
+        // Load version first: A concurrent change results in another version on next check
+        var version = loadVersion(formName);
+        var rows = loadRows(formName);
+        var subFormTargets = rows.stream().anyMatch(row -> row.type == Type.SUBFORM)
+                ? loadSubFormTargets(formName)
+                : Map.<String, String>of();
+        return new FormDefinition(formName, buildEntryTree(rows), version, subFormTargets);
+    }
+
+    /**
+     * Loads the names of the forms referenced by SUBFORM entries. Returns an empty map
+     * if the configured reference column cannot be read.
+     */
+    private Map<String, String> loadSubFormTargets(String formName) {
+        var result = new HashMap<String, String>();
+        try {
+            jdbcTemplate.query(
+                    subFormTargetsSql,
+                    (RowCallbackHandler) resultSet -> result.put(resultSet.getString("name"), resultSet.getString("referenced_form_name")),
+                    formName
+            );
+        } catch (DataAccessException e) {
+            return Map.of();
+        }
+        return result;
+    }
+
+    private List<EntryRow> loadRows(String formName) {
+        var sql = "SELECT dfe.id, dfe.name, dfe.description, dfe.type, dfe.element_parent_id, dfe.position FROM data_form " +
+                "    JOIN data_form_entry dfe ON data_form.id = dfe.data_form_id " +
+                "    WHERE data_form.name = ? ORDER BY dfe.position, dfe.id";
+
+        return jdbcTemplate.query(
+                sql,
+                new Object[]{formName},
+                (resultSet, i) -> {
+                    var parentId = resultSet.getInt("element_parent_id");
+                    var hasParent = !resultSet.wasNull();
+                    var dataType = resultSet.getString("type");
+                    return new EntryRow(
+                            resultSet.getInt("id"),
+                            hasParent ? parentId : null,
+                            resultSet.getString("name"),
+                            resultSet.getString("description"),
+                            Type.from(dataType),
+                            dataType,
+                            resultSet.getInt("position")
+                    );
+                }
+        );
+    }
+
+    /**
+     * Builds the tree of form entries using the parent IDs of given rows.
+     * Rows are expected to be ordered by position. Rows without reachable parent are ignored.
+     *
+     * @param rows The rows of all form entries of a form
+     * @return List of top level entries
+     */
+    static List<Entry> buildEntryTree(List<EntryRow> rows) {
+        var childRows = new HashMap<Integer, List<EntryRow>>();
+        for (var row : rows) {
+            childRows.computeIfAbsent(row.parentId, key -> new ArrayList<>()).add(row);
+        }
+        return buildEntries(childRows, null);
+    }
+
+    private static List<Entry> buildEntries(Map<Integer, List<EntryRow>> childRows, Integer parentId) {
+        var rows = childRows.getOrDefault(parentId, List.of());
+        var result = new ArrayList<Entry>(rows.size());
+        for (var row : rows) {
+            result.add(new Entry(row.name, row.description, row.type, row.dataType, buildEntries(childRows, row.id)));
+        }
+        return result;
+    }
+
+    static class EntryRow {
+        public final int id;
+        public final Integer parentId;
+        public final String name;
+        public final String description;
+        public final Type type;
+        public final String dataType;
+        public final int position;
+
+        EntryRow(int id, Integer parentId, String name, String description, Type type) {
+            this(id, parentId, name, description, type, null, 0);
+        }
+
+        EntryRow(int id, Integer parentId, String name, String description, Type type, int position) {
+            this(id, parentId, name, description, type, null, position);
+        }
+
+        EntryRow(int id, Integer parentId, String name, String description, Type type, String dataType, int position) {
+            this.id = id;
+            this.parentId = parentId;
+            this.name = name;
+            this.description = description;
+            this.type = type;
+            this.dataType = dataType;
+            this.position = position;
+        }
+    }
+
+}
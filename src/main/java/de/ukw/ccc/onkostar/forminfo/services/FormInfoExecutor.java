@@ -0,0 +1,129 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Comprehensive Cancer Center Mainfranken
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.ukw.ccc.onkostar.forminfo.services;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Executor with a fixed number of threads and a bounded queue used by asynchronous service methods.
+ * If the queue is full, the submitting thread waits for free capacity up to the given submit timeout.
+ *
+ * @author Paul-Christian Volkmer
+ * @since 0.2.0
+ */
+class FormInfoExecutor {
+
+    static final int DEFAULT_PARALLELISM = 4;
+
+    static final int DEFAULT_QUEUE_SIZE = 100;
+
+    static final Duration DEFAULT_SUBMIT_TIMEOUT = Duration.ofSeconds(30);
+
+    private final ThreadPoolExecutor executor;
+
+    private final long submitTimeoutNanos;
+
+    FormInfoExecutor(final FormInfoSettings settings) {
+        this(
+                settings.getInt(FormInfoSettings.ASYNC_PARALLELISM, DEFAULT_PARALLELISM),
+                settings.getInt(FormInfoSettings.ASYNC_QUEUE_SIZE, DEFAULT_QUEUE_SIZE),
+                settings.getDuration(FormInfoSettings.ASYNC_SUBMIT_TIMEOUT, DEFAULT_SUBMIT_TIMEOUT)
+        );
+    }
+
+    /**
+     * Creates a new executor. Threads are started on demand and terminated when idle.
+     *
+     * @param parallelism   The maximum number of tasks executed at the same time
+     * @param queueSize     The maximum number of waiting tasks
+     * @param submitTimeout The maximum time to wait for free capacity if the queue is full
+     */
+    FormInfoExecutor(final int parallelism, final int queueSize, final Duration submitTimeout) {
+        var threadNumber = new AtomicInteger();
+        this.submitTimeoutNanos = submitTimeout.toNanos();
+        this.executor = new ThreadPoolExecutor(
+                Math.max(1, parallelism),
+                Math.max(1, parallelism),
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize)),
+                runnable -> {
+                    var thread = new Thread(runnable, "forminfo-async-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                this::waitForCapacity
+        );
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Executes given supplier. The returned future fails with RejectedExecutionException
+     * if there was no free capacity within submit timeout.
+     *
+     * @param supplier The supplier to be executed
+     * @param <T>      The type of the result
+     * @return The future result
+     */
+    <T> CompletableFuture<T> submit(Supplier<T> supplier) {
+        try {
+            return CompletableFuture.supplyAsync(supplier, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private void waitForCapacity(Runnable runnable, ThreadPoolExecutor pool) {
+        if (pool.isShutdown()) {
+            throw new RejectedExecutionException("Executor has been shut down");
+        }
+        try {
+            if (!pool.getQueue().offer(runnable, submitTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new RejectedExecutionException("Queue limit of asynchronous requests reached");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for free capacity", e);
+        }
+    }
+}
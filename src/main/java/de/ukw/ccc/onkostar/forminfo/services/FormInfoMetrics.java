@@ -0,0 +1,209 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Comprehensive Cancer Center Mainfranken
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.ukw.ccc.onkostar.forminfo.services;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Lock free runtime metrics of FormInfo calls, SQL statements and caches
+ *
+ * @author Paul-Christian Volkmer
+ * @since 0.2.0
+ */
+@Component
+public class FormInfoMetrics {
+
+    /**
+     * Upper bounds of latency histogram buckets in milliseconds
+     */
+    static final long[] LATENCY_BUCKETS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private static final ThreadLocal<long[]> SQL_STATEMENTS = ThreadLocal.withInitial(() -> new long[1]);
+
+    private final Map<String, MethodStats> methods = new ConcurrentHashMap<>();
+
+    private final Map<String, LruCache<?, ?>> caches = new ConcurrentHashMap<>();
+
+    private final Map<String, Supplier<Map<String, Object>>> status = new ConcurrentHashMap<>();
+
+    private volatile Instant since = Instant.now();
+
+    /**
+     * Executes and records the given call
+     *
+     * @param name       The name of the call
+     * @param call       The call to be executed
+     * @param resultSize Function to get the size of the result
+     * @param <T>        The result type
+     * @return The result of the call
+     */
+    public <T> T timed(String name, Supplier<T> call, ToIntFunction<T> resultSize) {
+        var stats = methods.computeIfAbsent(name, key -> new MethodStats());
+        var startStatements = SQL_STATEMENTS.get()[0];
+        var startNanos = System.nanoTime();
+        try {
+            var result = call.get();
+            stats.record(
+                    System.nanoTime() - startNanos,
+                    SQL_STATEMENTS.get()[0] - startStatements,
+                    null == result ? 0 : resultSize.applyAsInt(result)
+            );
+            return result;
+        } catch (RuntimeException e) {
+            stats.errors.increment();
+            stats.record(System.nanoTime() - startNanos, SQL_STATEMENTS.get()[0] - startStatements, 0);
+            throw e;
+        }
+    }
+
+    /**
+     * Counts a SQL statement executed by current thread
+     */
+    void countSqlStatement() {
+        SQL_STATEMENTS.get()[0]++;
+    }
+
+    void registerCache(String name, LruCache<?, ?> cache) {
+        caches.put(name, cache);
+    }
+
+    /**
+     * Registers the status of a background task to be contained in stats
+     */
+    void registerStatus(String name, Supplier<Map<String, Object>> supplier) {
+        status.put(name, supplier);
+    }
+
+    /**
+     * Resets all recorded metrics
+     */
+    public void reset() {
+        methods.clear();
+        caches.values().forEach(LruCache::resetStats);
+        since = Instant.now();
+    }
+
+    /**
+     * Returns a snapshot of all recorded metrics
+     *
+     * @return Map containing metrics of all calls and caches and status of background tasks
+     */
+    public Map<String, Object> getStats() {
+        var result = new LinkedHashMap<String, Object>();
+        result.put("since", since.toString());
+
+        var methodResult = new TreeMap<String, Object>();
+        methods.forEach((name, stats) -> methodResult.put(name, stats.toMap()));
+        result.put("methods", methodResult);
+
+        var cacheResult = new TreeMap<String, Object>();
+        caches.forEach((name, cache) -> {
+            var hits = cache.getHits();
+            var misses = cache.getMisses();
+            var cacheStats = new LinkedHashMap<String, Object>();
+            cacheStats.put("size", cache.size());
+            cacheStats.put("hits", hits);
+            cacheStats.put("misses", misses);
+            cacheStats.put("hitRate", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+            cacheResult.put(name, cacheStats);
+        });
+        result.put("caches", cacheResult);
+
+        var statusResult = new TreeMap<String, Object>();
+        status.forEach((name, supplier) -> statusResult.put(name, supplier.get()));
+        result.put("status", statusResult);
+
+        return result;
+    }
+
+    private static class MethodStats {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+        private final LongAdder sqlStatements = new LongAdder();
+        private final LongAccumulator maxSqlStatements = new LongAccumulator(Long::max, 0);
+        private final LongAdder resultSize = new LongAdder();
+        private final LongAdder[] buckets = new LongAdder[LATENCY_BUCKETS.length + 1];
+
+        MethodStats() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long nanos, long statements, int size) {
+            calls.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            sqlStatements.add(statements);
+            maxSqlStatements.accumulate(statements);
+            resultSize.add(size);
+            buckets[bucketIndex(TimeUnit.NANOSECONDS.toMillis(nanos))].increment();
+        }
+
+        private static int bucketIndex(long millis) {
+            for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+                if (millis < LATENCY_BUCKETS[i]) {
+                    return i;
+                }
+            }
+            return LATENCY_BUCKETS.length;
+        }
+
+        Map<String, Object> toMap() {
+            var count = calls.sum();
+            var result = new LinkedHashMap<String, Object>();
+            result.put("calls", count);
+            result.put("errors", errors.sum());
+            result.put("meanMillis", count == 0 ? 0.0 : totalNanos.sum() / 1_000_000.0 / count);
+            result.put("maxMillis", maxNanos.get() / 1_000_000.0);
+            result.put("meanSqlStatements", count == 0 ? 0.0 : (double) sqlStatements.sum() / count);
+            result.put("maxSqlStatements", maxSqlStatements.get());
+            result.put("meanResultSize", count == 0 ? 0.0 : (double) resultSize.sum() / count);
+
+            var histogram = new LinkedHashMap<String, Long>();
+            for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+                histogram.put("<" + LATENCY_BUCKETS[i] + "ms", buckets[i].sum());
+            }
+            histogram.put(">=" + LATENCY_BUCKETS[LATENCY_BUCKETS.length - 1] + "ms", buckets[LATENCY_BUCKETS.length].sum());
+            result.put("latency", histogram);
+
+            return result;
+        }
+    }
+
+}
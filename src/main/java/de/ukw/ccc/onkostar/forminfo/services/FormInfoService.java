@@ -24,13 +24,31 @@
 
 package de.ukw.ccc.onkostar.forminfo.services;
 
+import de.ukw.ccc.onkostar.forminfo.ContentNode;
+import de.ukw.ccc.onkostar.forminfo.ContentResult;
+import de.ukw.ccc.onkostar.forminfo.ContentValues;
+import de.ukw.ccc.onkostar.forminfo.ExportFormat;
 import de.ukw.ccc.onkostar.forminfo.FormInfoException;
+import de.ukw.ccc.onkostar.forminfo.FormInfoOptions;
+import de.ukw.ccc.onkostar.forminfo.FormInfoResult;
+import de.ukw.ccc.onkostar.forminfo.FormSchema;
 import de.ukw.ccc.onkostar.forminfo.Result;
+import de.ukw.ccc.onkostar.forminfo.SubFormNode;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
- * Interface of all FormInfoService
+ * Interface of all FormInfoService.
+ * Asynchronous methods are executed on a bounded executor and complete exceptionally
+ * if the request cannot be queued or fails.
  *
  * @author Paul-Christian Volkmer
  * @since 0.1.0
@@ -42,7 +60,123 @@ public interface FormInfoService {
      * @param procedureId The procedure ID of the requested form.
      * @return List containing content data
      */
-    List<Result> getFormInfo(int procedureId) throws FormInfoException;
+    default List<Result> getFormInfo(int procedureId) throws FormInfoException {
+        return getFormInfo(procedureId, FormInfoOptions.DEFAULT);
+    }
+
+    /**
+     * This method returns the filtered content of given form.
+     * Values of fields not requested by given options will not be resolved.
+     *
+     * @param procedureId The procedure ID of the requested form.
+     * @param options     Options to filter the content.
+     * @return List containing content data
+     */
+    List<Result> getFormInfo(int procedureId, FormInfoOptions options) throws FormInfoException;
+
+    /**
+     * This method returns the filtered content of given form as tree following its sections and groups.
+     * Only values of fields within the given depth are read, deeper sections and groups are returned
+     * without children and can be loaded using {@link #getFormInfoSection(int, String, FormInfoOptions, int)}.
+     * Sub forms are not inlined.
+     *
+     * @param procedureId The procedure ID of the requested form.
+     * @param options     Options to filter the content.
+     * @param depth       The number of levels of sections and groups to be loaded, 0 for top level entries only.
+     * @return List containing top level content nodes
+     */
+    List<Result> getFormInfoTree(int procedureId, FormInfoOptions options, int depth) throws FormInfoException;
+
+    /**
+     * This method returns a section or group of given form as tree including its children up to the given depth
+     *
+     * @param procedureId The procedure ID of the requested form.
+     * @param entryName   The name of the section or group.
+     * @param options     Options to filter the content.
+     * @param depth       The number of levels of sections and groups to be loaded, at least 1.
+     * @return The content node of the section or group
+     */
+    ContentNode getFormInfoSection(int procedureId, String entryName, FormInfoOptions options, int depth) throws FormInfoException;
+
+    /**
+     * This method returns the ordered fields of given form without values
+     *
+     * @param formName The name of the form.
+     * @return The schema of the form
+     */
+    FormSchema getFormSchema(String formName);
+
+    /**
+     * This method returns the values of given form aligned to the fields of the form schema.
+     * Values of fields not requested by given options are null. Other options are ignored.
+     *
+     * @param procedureId The procedure ID of the requested form.
+     * @param options     Options to filter the content.
+     * @return Values and version of the schema the values are aligned to
+     */
+    ContentValues getFormInfoValues(int procedureId, FormInfoOptions options) throws FormInfoException;
+
+    /**
+     * This method returns the filtered content of given form including a fingerprint of the content.
+     * If the fingerprint matches the given fingerprint, no content will be loaded and returned.
+     *
+     * @param procedureId The procedure ID of the requested form.
+     * @param options     Options to filter the content.
+     * @param ifNoneMatch The fingerprint of already known content or null
+     * @return Content and fingerprint or fingerprint only if content was not modified
+     */
+    ContentResult getFormInfoIfModified(int procedureId, FormInfoOptions options, String ifNoneMatch) throws FormInfoException;
+
+    /**
+     * This method returns the content of all given forms.
+     * Errors are reported per procedure ID and do not fail the whole request.
+     *
+     * @param procedureIds The procedure IDs of the requested forms.
+     * @return Map containing content data or an error for each procedure ID
+     */
+    default Map<Integer, FormInfoResult> getFormInfos(Collection<Integer> procedureIds) {
+        return getFormInfos(procedureIds, FormInfoOptions.DEFAULT);
+    }
+
+    /**
+     * This method returns the filtered content of all given forms.
+     * Errors are reported per procedure ID and do not fail the whole request.
+     *
+     * @param procedureIds The procedure IDs of the requested forms.
+     * @param options      Options to filter the content.
+     * @return Map containing content data or an error for each procedure ID
+     */
+    Map<Integer, FormInfoResult> getFormInfos(Collection<Integer> procedureIds, FormInfoOptions options);
+
+    /**
+     * This method exports the filtered content of all procedures of given form.
+     * Content is written incrementally, one line per procedure. Given output stream will not be closed.
+     *
+     * @param formName     The name of the form.
+     * @param options      Options to filter the content.
+     * @param format       The output format.
+     * @param outputStream The target output stream.
+     * @return Number of exported procedures
+     */
+    long exportFormInfos(String formName, FormInfoOptions options, ExportFormat format, OutputStream outputStream) throws FormInfoException;
+
+    /**
+     * This method exports the filtered content of all procedures of given form into a file.
+     * An existing file will be overwritten.
+     *
+     * @param formName The name of the form.
+     * @param options  Options to filter the content.
+     * @param format   The output format.
+     * @param file     The target file.
+     * @return Number of exported procedures
+     */
+    default long exportFormInfos(String formName, FormInfoOptions options, ExportFormat format, Path file) throws FormInfoException {
+        try (var outputStream = new BufferedOutputStream(Files.newOutputStream(file))) {
+            return exportFormInfos(formName, options, format, outputStream);
+        } catch (IOException e) {
+            throw new FormInfoException(String.format("Cannot write export to file '%s'", file));
+        }
+    }
 
     /**
      * This method returns the procedure ID of the related main form for given subform
@@ -59,4 +193,88 @@ public interface FormInfoService {
      * @return procedure IDs of the related sub forms
      */
     List<Integer> getSubFormProcedureIds(int procedureId);
+
+    /**
+     * This method returns the tree of all sub forms of the given form including nested sub forms
+     *
+     * @param procedureId The ID of a form.
+     * @return tree node of the given form containing all nested sub forms
+     */
+    SubFormNode getSubFormTree(int procedureId) throws FormInfoException;
+
+    /**
+     * This method returns the procedure ID of the top level main form for given subform
+     *
+     * @param procedureId The ID of a form.
+     * @return procedure ID of the top level main form or given procedure ID if form is not a subform
+     */
+    int getRootProcedureId(int procedureId) throws FormInfoException;
+
+    /**
+     * This method returns the content of given form asynchronously
+     *
+     * @param procedureId The procedure ID of the requested form.
+     * @return Future containing content data
+     */
+    default CompletableFuture<List<Result>> getFormInfoAsync(int procedureId) {
+        return getFormInfoAsync(procedureId, FormInfoOptions.DEFAULT);
+    }
+
+    /**
+     * This method returns the filtered content of given form asynchronously
+     *
+     * @param procedureId The procedure ID of the requested form.
+     * @param options     Options to filter the content.
+     * @return Future containing content data
+     */
+    CompletableFuture<List<Result>> getFormInfoAsync(int procedureId, FormInfoOptions options);
+
+    /**
+     * This method returns the filtered content of all given forms asynchronously
+     *
+     * @param procedureIds The procedure IDs of the requested forms.
+     * @param options      Options to filter the content.
+     * @return Future containing content data or an error for each procedure ID
+     */
+    CompletableFuture<Map<Integer, FormInfoResult>> getFormInfosAsync(Collection<Integer> procedureIds, FormInfoOptions options);
+
+    /**
+     * This method returns the procedure ID of the related main form for given subform asynchronously
+     *
+     * @param procedureId The ID of a subform.
+     * @return Future containing procedure ID of the related main form
+     */
+    CompletableFuture<Integer> getMainFormProcedureIdAsync(int procedureId);
+
+    /**
+     * This method returns the procedure IDs of the related sub forms for the given main form asynchronously
+     *
+     * @param procedureId The ID of a form.
+     * @return Future containing procedure IDs of the related sub forms
+     */
+    CompletableFuture<List<Integer>> getSubFormProcedureIdsAsync(int procedureId);
+
+    /**
+     * This method returns the tree of all sub forms of the given form asynchronously
+     *
+     * @param procedureId The ID of a form.
+     * @return Future containing tree node of the given form
+     */
+    CompletableFuture<SubFormNode> getSubFormTreeAsync(int procedureId);
+
+    /**
+     * This method returns the procedure ID of the top level main form for given subform asynchronously
+     *
+     * @param procedureId The ID of a form.
+     * @return Future containing procedure ID of the top level main form
+     */
+    CompletableFuture<Integer> getRootProcedureIdAsync(int procedureId);
+
+    /**
+     * This method removes the cached definition of the given form.
+     * If no form name is given, all cached form definitions and catalogue entries will be removed.
+     *
+     * @param formName The name of the form or null
+     */
+    void invalidateFormCache(String formName);
 }
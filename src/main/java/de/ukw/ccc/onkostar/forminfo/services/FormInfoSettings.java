@@ -0,0 +1,154 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Comprehensive Cancer Center Mainfranken
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.ukw.ccc.onkostar.forminfo.services;
+
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+/**
+ * Settings of this plugin read from file 'onkostar-config.properties'.
+ * Missing or invalid values are replaced by given default values.
+ *
+ * @author Paul-Christian Volkmer
+ * @since 0.2.0
+ */
+@Component
+public class FormInfoSettings {
+
+    static final String CONFIG_FILE = "/onkostar-config.properties";
+
+    public static final String FORM_CACHE_SIZE = "forminfo.cache.forms.size";
+    public static final String FORM_CACHE_TTL = "forminfo.cache.forms.ttl";
+    public static final String FORM_CACHE_VERSION_CHECK_INTERVAL = "forminfo.cache.forms.version-check-interval";
+    public static final String CATALOGUE_CACHE_SIZE = "forminfo.cache.catalogue.size";
+    public static final String CATALOGUE_CACHE_TTL = "forminfo.cache.catalogue.ttl";
+    public static final String REFERENCE_CACHE_SIZE = "forminfo.cache.references.size";
+    public static final String REFERENCE_CACHE_TTL = "forminfo.cache.references.ttl";
+    public static final String REFERENCE_SUMMARY_FIELDS = "forminfo.references.summary-fields";
+    public static final String ASYNC_PARALLELISM = "forminfo.async.parallelism";
+    public static final String ASYNC_QUEUE_SIZE = "forminfo.async.queue-size";
+    public static final String ASYNC_SUBMIT_TIMEOUT = "forminfo.async.submit-timeout";
+    public static final String EXPORT_FETCH_SIZE = "forminfo.export.fetch-size";
+    public static final String EXPORT_PAGE_SIZE = "forminfo.export.page-size";
+    public static final String VALUE_SOURCE = "forminfo.values.source";
+    public static final String PREWARM_ENABLED = "forminfo.prewarm.enabled";
+    public static final String PREWARM_FORMS = "forminfo.prewarm.forms";
+    public static final String PREWARM_SAMPLES_PER_FORM = "forminfo.prewarm.samples-per-form";
+    public static final String PREWARM_TIME_BUDGET = "forminfo.prewarm.time-budget";
+    public static final String HIERARCHY_INDEX_ENABLED = "forminfo.hierarchy-index.enabled";
+    public static final String HIERARCHY_INDEX_RECONCILE_INTERVAL = "forminfo.hierarchy-index.reconcile-interval";
+    public static final String SUB_FORM_MAX_DEPTH = "forminfo.subforms.max-depth";
+    public static final String SUB_FORM_REFERENCE_COLUMN = "forminfo.subforms.reference-column";
+    public static final String FINGERPRINT_MODIFICATION_COLUMN = "forminfo.fingerprint.modification-column";
+
+    private final Properties properties;
+
+    public FormInfoSettings() {
+        this(loadProperties());
+    }
+
+    FormInfoSettings(final Properties properties) {
+        this.properties = properties;
+    }
+
+    private static Properties loadProperties() {
+        var properties = new Properties();
+        try (var inputStream = FormInfoSettings.class.getResourceAsStream(CONFIG_FILE)) {
+            if (null != inputStream) {
+                properties.load(inputStream);
+            }
+        } catch (IOException e) {
+            // Use default values
+        }
+        return properties;
+    }
+
+    public int getInt(String key, int defaultValue) {
+        var value = properties.getProperty(key);
+        if (null == value) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public String getString(String key, String defaultValue) {
+        var value = properties.getProperty(key);
+        if (null == value || value.isBlank()) {
+            return defaultValue;
+        }
+        return value.trim();
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        var value = properties.getProperty(key);
+        if (null == value) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value.trim());
+    }
+
+    /**
+     * Returns the comma separated values of a setting
+     *
+     * @param key The key of the setting
+     * @return The values or an empty list
+     */
+    public List<String> getStringList(String key) {
+        var value = properties.getProperty(key);
+        if (null == value || value.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(item -> !item.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the duration of a setting given in seconds
+     *
+     * @param key          The key of the setting
+     * @param defaultValue The default value
+     * @return The duration
+     */
+    public Duration getDuration(String key, Duration defaultValue) {
+        var seconds = getInt(key, -1);
+        if (seconds < 0) {
+            return defaultValue;
+        }
+        return Duration.ofSeconds(seconds);
+    }
+
+}
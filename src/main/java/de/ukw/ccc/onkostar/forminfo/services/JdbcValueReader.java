@@ -0,0 +1,222 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Comprehensive Cancer Center Mainfranken
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.ukw.ccc.onkostar.forminfo.services;
+
+import de.ukw.ccc.onkostar.forminfo.FormInfoException;
+import de.ukw.ccc.onkostar.forminfo.Type;
+import de.ukw.ccc.onkostar.forminfo.services.FieldDescriptor.ValueStrategy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Reads values of form fields directly from data catalogue tables without loading the procedure.
+ * The columns of a form are resolved once per form definition version. Forms with fields that cannot
+ * be mapped to a column are not supported and have to be read using IOnkostarApi.
+ *
+ * @author Paul-Christian Volkmer
+ * @since 0.2.0
+ */
+class JdbcValueReader {
+
+    static final String TABLE_PREFIX = "dk_";
+
+    static final String CATALOGUE_VERSION_SUFFIX = "_propcat_version";
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z0-9_]+");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final LruCache<String, Optional<Map<String, ValueColumn>>> columns;
+
+    JdbcValueReader(final JdbcTemplate jdbcTemplate, final FormInfoSettings settings) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.columns = new LruCache<>(
+                settings.getInt(FormInfoSettings.FORM_CACHE_SIZE, FormDefinitionRepository.DEFAULT_CACHE_SIZE),
+                settings.getDuration(FormInfoSettings.FORM_CACHE_TTL, FormDefinitionRepository.DEFAULT_CACHE_TTL)
+        );
+    }
+
+    /**
+     * Returns the form name of a procedure
+     *
+     * @param procedureId The procedure ID
+     * @return The form name
+     */
+    String getFormName(int procedureId) {
+        var sql = "SELECT data_form.name FROM prozedur " +
+                "    JOIN data_form ON data_form.id = prozedur.data_form_id " +
+                "    WHERE prozedur.id = ?";
+        try {
+            return jdbcTemplate.queryForObject(sql, String.class, procedureId);
+        } catch (Exception e) {
+            throw new FormInfoException(String.format("No such procedure with ID '%d'", procedureId));
+        }
+    }
+
+    /**
+     * Reads the values of given fields with one query per data catalogue
+     *
+     * @param procedureId    The procedure ID
+     * @param formDefinition The definition of the form of the procedure
+     * @param fields         The requested fields of the form
+     * @return The values of the fields or null if the form is not supported
+     */
+    FieldValue[] read(int procedureId, FormDefinition formDefinition, FieldDescriptor[] fields) {
+        var cacheKey = formDefinition.formName + "@" + formDefinition.version;
+        var formColumns = columns.computeIfAbsent(cacheKey, key -> loadColumns(formDefinition.formName));
+        if (formColumns.isEmpty()) {
+            return null;
+        }
+
+        var fieldIndexesByTable = new LinkedHashMap<String, List<Integer>>();
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i].strategy != ValueStrategy.VALUE || fields[i].type == Type.SUBFORM) {
+                continue;
+            }
+            var column = formColumns.get().get(fields[i].name);
+            if (null == column) {
+                return null;
+            }
+            fieldIndexesByTable.computeIfAbsent(column.table, key -> new ArrayList<>()).add(i);
+        }
+
+        var values = new FieldValue[fields.length];
+        try {
+            fieldIndexesByTable.forEach((table, fieldIndexes) -> readTable(procedureId, table, fields, fieldIndexes, formColumns.get(), values));
+        } catch (Exception e) {
+            // Mapped tables or columns do not match database, do not try again for this form definition
+            columns.put(cacheKey, Optional.empty());
+            return null;
+        }
+        return values;
+    }
+
+    void clear() {
+        columns.clear();
+    }
+
+    LruCache<?, ?> getCache() {
+        return columns;
+    }
+
+    private void readTable(
+            int procedureId,
+            String table,
+            FieldDescriptor[] fields,
+            List<Integer> fieldIndexes,
+            Map<String, ValueColumn> formColumns,
+            FieldValue[] target
+    ) {
+        var selectedColumns = new ArrayList<String>();
+        for (var index : fieldIndexes) {
+            var column = formColumns.get(fields[index].name);
+            selectedColumns.add(column.column);
+            if (column.hasCatalogueVersion) {
+                selectedColumns.add(column.column + CATALOGUE_VERSION_SUFFIX);
+            }
+        }
+
+        var sql = "SELECT " + String.join(", ", selectedColumns) + " FROM " + table + " WHERE id = ?";
+        jdbcTemplate.query(sql, (RowCallbackHandler) resultSet -> {
+            var columnIndex = 1;
+            for (var index : fieldIndexes) {
+                var column = formColumns.get(fields[index].name);
+                var value = resultSet.getObject(columnIndex++);
+                var propertyCatalogueVersion = column.hasCatalogueVersion ? resultSet.getString(columnIndex++) : null;
+                target[index] = toFieldValue(value, propertyCatalogueVersion);
+            }
+        }, procedureId);
+    }
+
+    static FieldValue toFieldValue(Object value, String propertyCatalogueVersion) {
+        if (null == value) {
+            return null;
+        }
+        if (value instanceof Date) {
+            var date = new Date(((Date) value).getTime());
+            return new FieldValue(date, null, date, null);
+        }
+        if (null != propertyCatalogueVersion) {
+            return new FieldValue(value, value.toString(), null, propertyCatalogueVersion);
+        }
+        return new FieldValue(value, null, null, null);
+    }
+
+    /**
+     * Loads table and column of all fields of given form. Returns empty result if
+     * no field can be mapped or table and column names are not valid identifiers.
+     */
+    private Optional<Map<String, ValueColumn>> loadColumns(String formName) {
+        var sql = "SELECT dfe.name AS field_name, LOWER(dc.name) AS catalogue_name, LOWER(dce.name) AS column_name, " +
+                "    cols.column_name AS version_column FROM data_form " +
+                "    JOIN data_form_entry dfe ON data_form.id = dfe.data_form_id " +
+                "    JOIN data_catalogue_entry dce ON dce.id = dfe.data_catalogue_entry_id " +
+                "    JOIN data_catalogue dc ON dc.id = dce.data_catalogue_id " +
+                "    LEFT JOIN information_schema.columns cols ON cols.table_schema = DATABASE() " +
+                "        AND cols.table_name = CONCAT('" + TABLE_PREFIX + "', LOWER(dc.name)) " +
+                "        AND cols.column_name = CONCAT(LOWER(dce.name), '" + CATALOGUE_VERSION_SUFFIX + "') " +
+                "    WHERE data_form.name = ?";
+
+        try {
+            var result = new HashMap<String, ValueColumn>();
+            var valid = new boolean[]{true};
+            jdbcTemplate.query(sql, (RowCallbackHandler) resultSet -> {
+                var table = TABLE_PREFIX + resultSet.getString("catalogue_name");
+                var column = resultSet.getString("column_name");
+                if (!IDENTIFIER.matcher(table).matches() || !IDENTIFIER.matcher(column).matches()) {
+                    valid[0] = false;
+                }
+                result.put(
+                        resultSet.getString("field_name"),
+                        new ValueColumn(table, column, null != resultSet.getString("version_column"))
+                );
+            }, formName);
+            return valid[0] && !result.isEmpty() ? Optional.of(result) : Optional.empty();
+        } catch (Exception e) {
+            return Optional.empty();
+        }
+    }
+
+    static class ValueColumn {
+        public final String table;
+        public final String column;
+        public final boolean hasCatalogueVersion;
+
+        ValueColumn(String table, String column, boolean hasCatalogueVersion) {
+            this.table = table;
+            this.column = column;
+            this.hasCatalogueVersion = hasCatalogueVersion;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Comprehensive Cancer Center Mainfranken
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.ukw.ccc.onkostar.forminfo.services;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Simple size bounded cache with LRU eviction and optional time to live
+ *
+ * @param <K> Type of cache keys
+ * @param <V> Type of cached values
+ * @author Paul-Christian Volkmer
+ * @since 0.2.0
+ */
+class LruCache<K, V> {
+
+    private final Map<K, CacheEntry<V>> entries;
+
+    private final long ttlNanos;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    LruCache(final int maxSize) {
+        this(maxSize, Duration.ZERO);
+    }
+
+    /**
+     * Creates a new cache
+     *
+     * @param maxSize The maximum number of entries
+     * @param ttl     The time to live of cache entries. Entries will not expire if zero.
+     */
+    LruCache(final int maxSize, final Duration ttl) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Cache size must be greater than zero");
+        }
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    V get(K key) {
+        V value = null;
+        synchronized (this) {
+            var entry = entries.get(key);
+            if (null != entry) {
+                if (ttlNanos > 0 && System.nanoTime() - entry.createdAt > ttlNanos) {
+                    entries.remove(key);
+                } else {
+                    value = entry.value;
+                }
+            }
+        }
+        if (null == value) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    /**
+     * Checks if there is a value for given key without changing cache statistics
+     *
+     * @param key The cache key
+     * @return true if there is a value that has not expired
+     */
+    synchronized boolean contains(K key) {
+        var entry = entries.get(key);
+        return null != entry && (ttlNanos <= 0 || System.nanoTime() - entry.createdAt <= ttlNanos);
+    }
+
+    void put(K key, V value) {
+        var entry = new CacheEntry<>(value, System.nanoTime());
+        synchronized (this) {
+            entries.put(key, entry);
+        }
+    }
+
+    /**
+     * Returns cached value or loads and caches it. The loader is called without holding the lock,
+     * so concurrent misses for the same key may load the value more than once.
+     *
+     * @param key    The cache key
+     * @param loader Function to load the value on cache miss
+     * @return The cached or loaded value
+     */
+    V computeIfAbsent(K key, Function<K, V> loader) {
+        var value = get(key);
+        if (null != value) {
+            return value;
+        }
+        value = loader.apply(key);
+        if (null != value) {
+            put(key, value);
+        }
+        return value;
+    }
+
+    synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    void resetStats() {
+        hits.reset();
+        misses.reset();
+    }
+
+    private static class CacheEntry<V> {
+        private final V value;
+        private final long createdAt;
+
+        CacheEntry(V value, long createdAt) {
+            this.value = value;
+            this.createdAt = createdAt;
+        }
+    }
+
+}
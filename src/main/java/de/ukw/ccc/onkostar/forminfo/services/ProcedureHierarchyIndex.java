@@ -0,0 +1,516 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Comprehensive Cancer Center Mainfranken
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.ukw.ccc.onkostar.forminfo.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index of main forms and sub forms of all procedures using primitive int arrays.
+ * The index is loaded from table 'prozedur' on a background thread, kept up to date for single procedures
+ * using {@link #update(int)} and reloaded periodically to reconcile missed changes.
+ * Lookups return {@link #UNKNOWN} or null if the index is not loaded or the procedure is not indexed,
+ * callers are expected to query the database in this case.
+ * The index is started and stopped by {@link DefaultFormInfoService}.
+ *
+ * @author Paul-Christian Volkmer
+ * @since 0.2.0
+ */
+@Component
+public class ProcedureHierarchyIndex {
+
+    static final int UNKNOWN = -1;
+
+    static final int NO_PARENT = 0;
+
+    static final Duration DEFAULT_RECONCILE_INTERVAL = Duration.ofMinutes(15);
+
+    enum State {
+        DISABLED,
+        PENDING,
+        LOADING,
+        READY,
+        FAILED
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Duration reconcileInterval;
+
+    private final int fetchSize;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Set<Integer> changedWhileLoading = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private final AtomicLong updates = new AtomicLong();
+
+    private final AtomicLong loads = new AtomicLong();
+
+    /**
+     * The current table, guarded by lock
+     */
+    private ProcedureTable table;
+
+    /**
+     * True while the table is reloaded, guarded by lock
+     */
+    private boolean loading;
+
+    private ScheduledExecutorService scheduler;
+
+    private volatile State state;
+
+    private volatile Instant loadedAt;
+
+    private volatile Duration loadDuration;
+
+    private volatile String error;
+
+    @Autowired
+    ProcedureHierarchyIndex(final DataSource dataSource, final FormInfoMetrics metrics, final FormInfoSettings settings) {
+        this(
+                new CountingJdbcTemplate(dataSource, metrics),
+                settings,
+                settings.getInt(FormInfoSettings.EXPORT_FETCH_SIZE, DefaultFormInfoService.DEFAULT_EXPORT_FETCH_SIZE)
+        );
+    }
+
+    /**
+     * Creates a new index
+     *
+     * @param jdbcTemplate The JdbcTemplate to be used
+     * @param settings     The plugin settings
+     * @param fetchSize    The fetch size of the JDBC cursor used to load the index
+     */
+    ProcedureHierarchyIndex(final JdbcTemplate jdbcTemplate, final FormInfoSettings settings, final int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fetchSize = fetchSize;
+        this.reconcileInterval = settings.getDuration(FormInfoSettings.HIERARCHY_INDEX_RECONCILE_INTERVAL, DEFAULT_RECONCILE_INTERVAL);
+        this.state = settings.getBoolean(FormInfoSettings.HIERARCHY_INDEX_ENABLED, false) ? State.PENDING : State.DISABLED;
+    }
+
+    /**
+     * Returns true if main forms and sub forms are answered from this index
+     *
+     * @return true if the index is enabled
+     */
+    public boolean isEnabled() {
+        return state != State.DISABLED;
+    }
+
+    /**
+     * Loads the index on a background thread and schedules reconciliation. Does nothing if disabled or already started.
+     */
+    void start() {
+        if (state == State.DISABLED || !started.compareAndSet(false, true)) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "forminfo-hierarchy-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (reconcileInterval.isZero()) {
+            scheduler.execute(this::load);
+        } else {
+            scheduler.scheduleWithFixedDelay(this::load, 0, reconcileInterval.toSeconds(), TimeUnit.SECONDS);
+        }
+    }
+
+    void stop() {
+        if (null != scheduler) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Loads all procedures into a new table and replaces the current table.
+     * Procedures updated while loading are updated again afterwards.
+     */
+    void load() {
+        var startNanos = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            loading = true;
+            changedWhileLoading.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (null == table) {
+            state = State.LOADING;
+        }
+
+        try {
+            var newTable = new ProcedureTable(1 << 16);
+            var sql = "SELECT id, hauptprozedur_id FROM prozedur";
+            jdbcTemplate.query(connection -> {
+                var statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(fetchSize);
+                return statement;
+            }, (RowCallbackHandler) resultSet -> newTable.put(resultSet.getInt("id"), resultSet.getInt("hauptprozedur_id")));
+
+            lock.writeLock().lock();
+            try {
+                table = newTable;
+                loading = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            changedWhileLoading.forEach(this::update);
+
+            loads.incrementAndGet();
+            loadedAt = Instant.now();
+            error = null;
+            state = State.READY;
+        } catch (Exception e) {
+            lock.writeLock().lock();
+            try {
+                loading = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            error = e.getMessage();
+            if (null == table) {
+                state = State.FAILED;
+            }
+        } finally {
+            loadDuration = Duration.ofNanos(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Updates the main form of given procedure or removes the procedure if it no longer exists
+     *
+     * @param procedureId The ID of the changed procedure
+     */
+    public void update(int procedureId) {
+        if (!isEnabled()) {
+            return;
+        }
+        var sql = "SELECT hauptprozedur_id FROM prozedur WHERE id = ?";
+        var parentIds = jdbcTemplate.queryForList(sql, Integer.class, procedureId);
+
+        lock.writeLock().lock();
+        try {
+            if (loading) {
+                changedWhileLoading.add(procedureId);
+            }
+            if (null == table) {
+                return;
+            }
+            if (parentIds.isEmpty()) {
+                table.remove(procedureId);
+            } else {
+                var parentId = parentIds.get(0);
+                table.put(procedureId, null == parentId ? NO_PARENT : parentId);
+            }
+            updates.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the procedure ID of the main form
+     *
+     * @param procedureId The ID of a procedure
+     * @return The ID of the main form, {@link #NO_PARENT} if not a sub form or {@link #UNKNOWN} if not indexed
+     */
+    int getParentId(int procedureId) {
+        lock.readLock().lock();
+        try {
+            return null == table ? UNKNOWN : table.getParent(procedureId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ordered procedure IDs of sub forms
+     *
+     * @param procedureId The ID of a procedure
+     * @return The IDs of sub forms or null if not indexed
+     */
+    int[] getChildIds(int procedureId) {
+        lock.readLock().lock();
+        try {
+            if (null == table) {
+                return null;
+            }
+            var childIds = table.getChildren(procedureId);
+            return null == childIds ? null : childIds.clone();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    State getState() {
+        return state;
+    }
+
+    /**
+     * Returns the current state of the index
+     *
+     * @return Map containing state and size
+     */
+    Map<String, Object> getStatus() {
+        var result = new LinkedHashMap<String, Object>();
+        result.put("state", state.name());
+        lock.readLock().lock();
+        try {
+            result.put("entries", null == table ? 0 : table.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+        result.put("loads", loads.get());
+        result.put("updates", updates.get());
+        if (null != loadedAt) {
+            result.put("loadedAt", loadedAt.toString());
+        }
+        if (null != loadDuration) {
+            result.put("durationMillis", loadDuration.toMillis());
+        }
+        if (null != error) {
+            result.put("error", error);
+        }
+        return result;
+    }
+
+    /**
+     * Hash table with open addressing containing the main form and sorted sub forms of each procedure.
+     * Procedures only known as main form of another procedure are stored with parent {@link #UNKNOWN}.
+     * Not thread safe.
+     */
+    static final class ProcedureTable {
+
+        private static final int[] NO_CHILDREN = new int[0];
+
+        private int[] ids;
+
+        private int[] parents;
+
+        private int[][] children;
+
+        private int mask;
+
+        private int size;
+
+        ProcedureTable(int initialCapacity) {
+            var capacity = Integer.highestOneBit(Math.max(16, initialCapacity) - 1) << 1;
+            this.ids = new int[capacity];
+            this.parents = new int[capacity];
+            this.children = new int[capacity][];
+            this.mask = capacity - 1;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int getParent(int id) {
+            var slot = indexOf(id);
+            return slot < 0 ? UNKNOWN : parents[slot];
+        }
+
+        int[] getChildren(int id) {
+            var slot = indexOf(id);
+            if (slot < 0 || parents[slot] == UNKNOWN) {
+                return null;
+            }
+            return null == children[slot] ? NO_CHILDREN : children[slot];
+        }
+
+        void put(int id, int parent) {
+            if (id <= 0) {
+                return;
+            }
+            var slot = insert(id);
+            var oldParent = parents[slot];
+            if (oldParent == parent) {
+                return;
+            }
+            parents[slot] = parent;
+            if (oldParent > 0) {
+                removeChild(oldParent, id);
+            }
+            if (parent > 0) {
+                addChild(parent, id);
+            }
+        }
+
+        void remove(int id) {
+            var slot = indexOf(id);
+            if (slot < 0) {
+                return;
+            }
+            var oldParent = parents[slot];
+            parents[slot] = UNKNOWN;
+            if (oldParent > 0) {
+                removeChild(oldParent, id);
+            }
+            removeIfUnused(id);
+        }
+
+        private void addChild(int parent, int child) {
+            var slot = insert(parent);
+            var current = null == children[slot] ? NO_CHILDREN : children[slot];
+            var position = Arrays.binarySearch(current, child);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+            var updated = new int[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, position);
+            updated[position] = child;
+            System.arraycopy(current, position, updated, position + 1, current.length - position);
+            children[slot] = updated;
+        }
+
+        private void removeChild(int parent, int child) {
+            var slot = indexOf(parent);
+            if (slot < 0 || null == children[slot]) {
+                return;
+            }
+            var current = children[slot];
+            var position = Arrays.binarySearch(current, child);
+            if (position < 0) {
+                return;
+            }
+            if (current.length == 1) {
+                children[slot] = null;
+                removeIfUnused(parent);
+                return;
+            }
+            var updated = new int[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, position);
+            System.arraycopy(current, position + 1, updated, position, updated.length - position);
+            children[slot] = updated;
+        }
+
+        private void removeIfUnused(int id) {
+            var slot = indexOf(id);
+            if (slot >= 0 && parents[slot] == UNKNOWN && null == children[slot]) {
+                delete(slot);
+            }
+        }
+
+        private static int hash(int id) {
+            var h = id * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        private int indexOf(int id) {
+            for (int slot = hash(id) & mask; ; slot = (slot + 1) & mask) {
+                if (ids[slot] == id) {
+                    return slot;
+                }
+                if (ids[slot] == 0) {
+                    return -1;
+                }
+            }
+        }
+
+        private int insert(int id) {
+            var slot = indexOf(id);
+            if (slot >= 0) {
+                return slot;
+            }
+            if ((size + 1) * 3 > ids.length * 2) {
+                resize(ids.length << 1);
+            }
+            for (slot = hash(id) & mask; ids[slot] != 0; slot = (slot + 1) & mask) {
+                // find free slot
+            }
+            ids[slot] = id;
+            parents[slot] = UNKNOWN;
+            size++;
+            return slot;
+        }
+
+        /**
+         * Deletes the entry in given slot and moves following entries of the probe sequence back
+         */
+        private void delete(int slot) {
+            var free = slot;
+            for (int next = (free + 1) & mask; ids[next] != 0; next = (next + 1) & mask) {
+                var home = hash(ids[next]) & mask;
+                var stays = free <= next ? (free < home && home <= next) : (free < home || home <= next);
+                if (!stays) {
+                    ids[free] = ids[next];
+                    parents[free] = parents[next];
+                    children[free] = children[next];
+                    free = next;
+                }
+            }
+            ids[free] = 0;
+            parents[free] = 0;
+            children[free] = null;
+            size--;
+        }
+
+        private void resize(int capacity) {
+            var oldIds = ids;
+            var oldParents = parents;
+            var oldChildren = children;
+            ids = new int[capacity];
+            parents = new int[capacity];
+            children = new int[capacity][];
+            mask = capacity - 1;
+            for (int i = 0; i < oldIds.length; i++) {
+                if (oldIds[i] != 0) {
+                    var slot = hash(oldIds[i]) & mask;
+                    while (ids[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    ids[slot] = oldIds[i];
+                    parents[slot] = oldParents[i];
+                    children[slot] = oldChildren[i];
+                }
+            }
+        }
+    }
+}
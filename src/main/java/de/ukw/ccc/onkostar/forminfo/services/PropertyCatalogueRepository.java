@@ -0,0 +1,180 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Comprehensive Cancer Center Mainfranken
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.ukw.ccc.onkostar.forminfo.services;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Repository to resolve property catalogue entries using set based queries.
+ * Since published catalogue versions are immutable, resolved entries are cached.
+ *
+ * @author Paul-Christian Volkmer
+ * @since 0.2.0
+ */
+class PropertyCatalogueRepository {
+
+    static final int DEFAULT_CACHE_SIZE = 10000;
+
+    static final Duration DEFAULT_CACHE_TTL = Duration.ofDays(1);
+
+    static final int MAX_KEYS_PER_QUERY = 250;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final LruCache<CatalogueKey, Optional<String>> cache;
+
+    PropertyCatalogueRepository(final JdbcTemplate jdbcTemplate, final FormInfoSettings settings) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cache = new LruCache<>(
+                settings.getInt(FormInfoSettings.CATALOGUE_CACHE_SIZE, DEFAULT_CACHE_SIZE),
+                settings.getDuration(FormInfoSettings.CATALOGUE_CACHE_TTL, DEFAULT_CACHE_TTL)
+        );
+    }
+
+    /**
+     * Returns the short descriptions of given catalogue entries.
+     * Entries not in cache are loaded using one query per {@value #MAX_KEYS_PER_QUERY} keys.
+     *
+     * @param keys The keys of requested catalogue entries
+     * @return Map containing short descriptions of all found catalogue entries
+     */
+    Map<CatalogueKey, String> getShortDescriptions(Collection<CatalogueKey> keys) {
+        var result = new HashMap<CatalogueKey, String>();
+        var missingKeys = new ArrayList<CatalogueKey>();
+
+        for (var key : new LinkedHashSet<>(keys)) {
+            var cached = cache.get(key);
+            if (null == cached) {
+                missingKeys.add(key);
+            } else {
+                cached.ifPresent(shortdesc -> result.put(key, shortdesc));
+            }
+        }
+
+        for (int i = 0; i < missingKeys.size(); i += MAX_KEYS_PER_QUERY) {
+            var chunk = missingKeys.subList(i, Math.min(i + MAX_KEYS_PER_QUERY, missingKeys.size()));
+            var loaded = load(chunk);
+            for (var key : chunk) {
+                var shortdesc = loaded.get(key);
+                cache.put(key, Optional.ofNullable(shortdesc));
+                if (null != shortdesc) {
+                    result.put(key, shortdesc);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Loads given catalogue entries into cache if not cached yet. Unlike {@link #getShortDescriptions(Collection)}
+     * this does not change cache statistics.
+     *
+     * @param keys The keys of catalogue entries to be cached
+     */
+    void prewarm(Collection<CatalogueKey> keys) {
+        var missingKeys = new ArrayList<CatalogueKey>();
+        for (var key : new LinkedHashSet<>(keys)) {
+            if (!cache.contains(key)) {
+                missingKeys.add(key);
+            }
+        }
+
+        for (int i = 0; i < missingKeys.size(); i += MAX_KEYS_PER_QUERY) {
+            var chunk = missingKeys.subList(i, Math.min(i + MAX_KEYS_PER_QUERY, missingKeys.size()));
+            var loaded = load(chunk);
+            chunk.forEach(key -> cache.put(key, Optional.ofNullable(loaded.get(key))));
+        }
+    }
+
+    private Map<CatalogueKey, String> load(List<CatalogueKey> keys) {
+        var sql = new StringBuilder("SELECT property_version_id, code, shortdesc FROM property_catalogue_version_entry WHERE ");
+        var variables = new Object[keys.size() * 2];
+        for (int i = 0; i < keys.size(); i++) {
+            if (i > 0) {
+                sql.append(" OR ");
+            }
+            sql.append("(property_version_id = ? AND code = ?)");
+            variables[i * 2] = keys.get(i).propertyVersionId;
+            variables[i * 2 + 1] = keys.get(i).code;
+        }
+
+        var result = new HashMap<CatalogueKey, String>();
+        jdbcTemplate.query(
+                sql.toString(),
+                variables,
+                (RowCallbackHandler) resultSet ->
+                        // Keep first matching entry like previous 'LIMIT 1' query
+                        result.putIfAbsent(
+                                new CatalogueKey(resultSet.getString("property_version_id"), resultSet.getString("code")),
+                                resultSet.getString("shortdesc")
+                        )
+        );
+        return result;
+    }
+
+    LruCache<?, ?> getCache() {
+        return cache;
+    }
+
+    void clear() {
+        cache.clear();
+    }
+
+    static class CatalogueKey {
+        public final String propertyVersionId;
+        public final String code;
+
+        CatalogueKey(String propertyVersionId, String code) {
+            this.propertyVersionId = propertyVersionId;
+            this.code = code;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            CatalogueKey that = (CatalogueKey) o;
+            return Objects.equals(propertyVersionId, that.propertyVersionId) && Objects.equals(code, that.code);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(propertyVersionId, code);
+        }
+    }
+
+}
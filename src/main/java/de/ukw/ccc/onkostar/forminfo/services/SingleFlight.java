@@ -0,0 +1,108 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Comprehensive Cancer Center Mainfranken
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.ukw.ccc.onkostar.forminfo.services;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls with equal keys into one computation. The first caller computes the result,
+ * callers arriving while the computation is in flight wait for and share its result or exception.
+ * Nothing is kept after the computation is complete, so a failure does not affect later calls.
+ *
+ * @param <K> Type of keys
+ * @author Paul-Christian Volkmer
+ * @since 0.2.0
+ */
+class SingleFlight<K> {
+
+    private final Map<K, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder executed = new LongAdder();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Executes given supplier or waits for an in flight execution with the same key
+     *
+     * @param key      The key of the call
+     * @param supplier The supplier to be executed
+     * @param <V>      The type of the result
+     * @return The result of the supplier, which might be shared with other callers
+     */
+    @SuppressWarnings("unchecked")
+    <V> V execute(K key, Supplier<V> supplier) {
+        var call = new CompletableFuture<Object>();
+        var existingCall = inFlight.putIfAbsent(key, call);
+        if (null != existingCall) {
+            coalesced.increment();
+            return (V) await(existingCall);
+        }
+
+        executed.increment();
+        try {
+            var result = supplier.get();
+            call.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    Map<String, Object> getStatus() {
+        var result = new HashMap<String, Object>();
+        result.put("inFlight", inFlight.size());
+        result.put("executed", executed.sum());
+        result.put("coalesced", coalesced.sum());
+        return result;
+    }
+
+}
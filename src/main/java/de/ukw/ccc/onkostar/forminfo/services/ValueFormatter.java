@@ -0,0 +1,288 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2023 Comprehensive Cancer Center Mainfranken
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package de.ukw.ccc.onkostar.forminfo.services;
+
+import de.itc.onkostar.api.Procedure;
+import de.ukw.ccc.onkostar.forminfo.Type;
+import de.ukw.ccc.onkostar.forminfo.services.PropertyCatalogueRepository.CatalogueKey;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Stateless and thread safe conversion of field values into compact, typed result values.
+ * The formatter of a field is selected once by {@link #from(Type, String)} when the form definition is loaded.
+ * Dates and catalogue entries are converted independent of the selected formatter.
+ *
+ * @author Paul-Christian Volkmer
+ * @since 0.2.0
+ */
+enum ValueFormatter {
+    /**
+     * Converts values depending on their type, unknown objects are converted into strings
+     */
+    AUTO {
+        @Override
+        Object formatValue(Object value) {
+            return formatAuto(value);
+        }
+    },
+    /**
+     * Converts dates given as ISO string into the date format of other dates.
+     * Date and time with offset is converted into default time zone like other dates.
+     */
+    DATE {
+        @Override
+        Object formatValue(Object value) {
+            if (value instanceof String) {
+                return formatIsoDate((String) value);
+            }
+            return formatAuto(value);
+        }
+    },
+    /**
+     * Converts numbers into integral numbers if possible. Numeric strings are only converted
+     * if the converted number has exactly the same string representation.
+     */
+    NUMBER {
+        @Override
+        Object formatValue(Object value) {
+            if (value instanceof String) {
+                try {
+                    var number = formatNumber(new BigDecimal((String) value));
+                    return number.toString().equals(value) ? number : value;
+                } catch (NumberFormatException e) {
+                    return value;
+                }
+            }
+            return formatAuto(value);
+        }
+    },
+    /**
+     * Converts numbers and strings like "1" or "true" into booleans
+     */
+    BOOLEAN {
+        @Override
+        Object formatValue(Object value) {
+            if (value instanceof Number) {
+                return ((Number) value).intValue() != 0;
+            }
+            if (value instanceof String) {
+                var string = ((String) value).trim().toLowerCase(Locale.ROOT);
+                if ("true".equals(string) || "1".equals(string)) {
+                    return true;
+                }
+                if ("false".equals(string) || "0".equals(string)) {
+                    return false;
+                }
+            }
+            return formatAuto(value);
+        }
+    },
+    /**
+     * Converts referenced procedures into their procedure ID
+     */
+    REFERENCE {
+        @Override
+        Object formatValue(Object value) {
+            if (value instanceof Procedure) {
+                return ((Procedure) value).getId();
+            }
+            if (value instanceof Map && null != ((Map<?, ?>) value).get("id")) {
+                return formatAuto(((Map<?, ?>) value).get("id"));
+            }
+            return formatAuto(value);
+        }
+    };
+
+    /**
+     * Shared formatter of dates, same output as SimpleDateFormat("dd.MM.yyyy") in default time zone
+     */
+    static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy").withZone(ZoneId.systemDefault());
+
+    /**
+     * Selects the formatter of a field using the type of the form entry as stored in table 'data_form_entry'
+     *
+     * @param type     The type of the field
+     * @param dataType The type of the form entry in database or null
+     * @return The formatter of the field
+     */
+    static ValueFormatter from(Type type, String dataType) {
+        if (type == Type.FORM_REFERENCE) {
+            return REFERENCE;
+        }
+        if (type != Type.INPUT || null == dataType) {
+            return AUTO;
+        }
+        switch (dataType) {
+            case "date":
+            case "datetime":
+                return DATE;
+            case "number":
+            case "numeric":
+            case "decimal":
+            case "integer":
+                return NUMBER;
+            case "boolean":
+            case "checkbox":
+                return BOOLEAN;
+            default:
+                return AUTO;
+        }
+    }
+
+    /**
+     * Formats a field value
+     *
+     * @param value            The field value or null
+     * @param catalogueEntries Short descriptions of catalogue entries
+     * @return The formatted value
+     */
+    Object format(FieldValue value, Map<CatalogueKey, String> catalogueEntries) {
+        if (null == value) {
+            return null;
+        }
+        if (null != value.date) {
+            return formatDate(value.date);
+        }
+        if (null != value.propertyCatalogueVersion) {
+            if (null != value.codes) {
+                var result = new ArrayList<String>(value.codes.size());
+                for (var code : value.codes) {
+                    var catalogueEntry = catalogueEntries.get(new CatalogueKey(value.propertyCatalogueVersion, code));
+                    result.add(null == catalogueEntry ? code : catalogueEntry);
+                }
+                return result;
+            }
+            var catalogueEntry = catalogueEntries.get(new CatalogueKey(value.propertyCatalogueVersion, value.string));
+            if (null != catalogueEntry) {
+                return catalogueEntry;
+            }
+        }
+        return formatValue(value.value);
+    }
+
+    abstract Object formatValue(Object value);
+
+    static String formatDate(Date date) {
+        return DATE_FORMAT.format(Instant.ofEpochMilli(date.getTime()));
+    }
+
+    /**
+     * Formats ISO date, date and time or date and time with offset. Returns unknown strings unchanged.
+     */
+    private static Object formatIsoDate(String value) {
+        try {
+            if (value.length() == 10) {
+                return DATE_FORMAT.format(LocalDate.parse(value));
+            }
+            return DATE_FORMAT.format(OffsetDateTime.parse(value).toInstant());
+        } catch (DateTimeParseException e) {
+            try {
+                return DATE_FORMAT.format(LocalDateTime.parse(value));
+            } catch (DateTimeParseException ignored) {
+                return value;
+            }
+        }
+    }
+
+    private static Object formatAuto(Object value) {
+        if (null == value || value instanceof String || value instanceof Boolean || value instanceof Map) {
+            return value;
+        }
+        if (value instanceof Number) {
+            return formatNumber((Number) value);
+        }
+        if (value instanceof Date) {
+            return formatDate((Date) value);
+        }
+        if (value instanceof LocalDate) {
+            return DATE_FORMAT.format((LocalDate) value);
+        }
+        if (value instanceof LocalDateTime) {
+            return DATE_FORMAT.format((LocalDateTime) value);
+        }
+        if (value instanceof Collection) {
+            var result = new ArrayList<>(((Collection<?>) value).size());
+            for (var item : (Collection<?>) value) {
+                result.add(formatAuto(item));
+            }
+            return result;
+        }
+        if (value instanceof Object[]) {
+            return formatAuto(Arrays.asList((Object[]) value));
+        }
+        return value.toString();
+    }
+
+    /**
+     * Returns integral numbers as Integer or Long, others as Double
+     */
+    static Number formatNumber(Number number) {
+        if (number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte) {
+            return number;
+        }
+        if (number instanceof BigInteger) {
+            return ((BigInteger) number).bitLength() < 64 ? toCompactIntegral(number.longValue()) : number.doubleValue();
+        }
+        if (number instanceof BigDecimal) {
+            var decimal = (BigDecimal) number;
+            if (decimal.signum() == 0 || decimal.stripTrailingZeros().scale() <= 0) {
+                try {
+                    return toCompactIntegral(decimal.longValueExact());
+                } catch (ArithmeticException e) {
+                    return decimal.doubleValue();
+                }
+            }
+            return decimal.doubleValue();
+        }
+        var doubleValue = number.doubleValue();
+        if (Double.isFinite(doubleValue) && doubleValue == Math.rint(doubleValue) && Math.abs(doubleValue) < 0x1p53) {
+            return toCompactIntegral((long) doubleValue);
+        }
+        return doubleValue;
+    }
+
+    private static Number toCompactIntegral(long value) {
+        if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+            return (int) value;
+        }
+        return value;
+    }
+}
@@ -25,97 +25,159 @@
 class FormInfoPlugin {
 
     static showFormContentInfo(context, procedureId) {
-        let items = [];
+        const onFailure = () => {
+            Ext.MessageBox.show({
+                title: 'Hinweis',
+                msg: 'Plugin "FormInfo" nicht verfügbar oder Fehler beim Ermitteln der Formularinhalte.',
+                buttons: Ext.MessageBox.OKCANCEL
+            });
+        };
 
-        context.executePluginMethod(
-            'FormInfoPlugin',
-            'getContent',
-            { id: procedureId },
+        FormInfoPlugin.getContentEntries(
+            context,
+            procedureId,
+            { excludeTypes: ['BUTTON', 'FORM_REFERENCE', 'SUBFORM'] },
+            (entries) => FormInfoPlugin.showContentDialog(FormInfoPlugin.toDialogRows(entries)),
+            onFailure
+        );
+    }
+
+    /**
+     * Converts form entries into rows of the info dialog. Entries without value are omitted.
+     */
+    static toDialogRows(entries) {
+        const rows = [];
+        entries.forEach((formEntry) => {
+            if (formEntry.type === 'SECTION' || formEntry.type === 'GROUP') {
+                rows.push({ kind: formEntry.type, description: formEntry.description, value: '' });
+                return;
+            }
+            if (formEntry.type !== 'INPUT' || formEntry.value === null || formEntry.value === undefined) {
+                return;
+            }
+            if (typeof formEntry.value == 'object') {
+                rows.push({ kind: 'OBJECT', description: formEntry.description, value: JSON.stringify(formEntry.value) });
+            } else if (String(formEntry.value).trim().length > 0) {
+                rows.push({ kind: 'INPUT', description: formEntry.description, value: String(formEntry.value) });
+            }
+        });
+        return rows;
+    }
+
+    /**
+     * Shows rows in a grid with buffered rendering, only visible rows are rendered.
+     */
+    static showContentDialog(rows) {
+        const store = Ext.create('Ext.data.Store', {
+            fields: ['kind', 'description', 'value'],
+            data: rows
+        });
+
+        const grid = Ext.create('Ext.grid.Panel', {
+            store: store,
+            columns: [
+                { text: 'Feld', dataIndex: 'description', flex: 1, renderer: FormInfoPlugin.renderDescription },
+                { text: 'Wert', dataIndex: 'value', flex: 2, renderer: FormInfoPlugin.renderValue }
+            ],
+            plugins: [{ ptype: 'bufferedrenderer' }],
+            columnLines: true,
+            disableSelection: true,
+            enableColumnMove: false,
+            sortableColumns: false
+        });
+
+        Ext.create('Ext.window.Window', {
+            title: 'Info',
+            height: 600,
+            width: 800,
+            layout: 'fit',
+            items: [grid]
+        }).show();
+    }
+
+    static renderDescription(value, metaData, record) {
+        FormInfoPlugin.applyRowStyle(metaData, record);
+        if (record.get('kind') === 'INPUT' || record.get('kind') === 'OBJECT') {
+            metaData.tdCls = 'infoBoxLabel';
+        }
+        return Ext.String.htmlEncode(value);
+    }
+
+    static renderValue(value, metaData, record) {
+        FormInfoPlugin.applyRowStyle(metaData, record);
+        if (record.get('kind') === 'OBJECT') {
+            return `<code style="color: gray">${Ext.String.htmlEncode(value)}</code>`;
+        }
+        return Ext.String.htmlEncode(value);
+    }
+
+    static applyRowStyle(metaData, record) {
+        let style = '';
+        if (record.get('kind') === 'SECTION') {
+            style = 'background: linear-gradient(whitesmoke, lightgray); font-weight: bold; font-size: 16px;';
+        } else if (record.get('kind') === 'GROUP') {
+            style = 'font-weight: bold;';
+        }
+        // 'style' is used by ExtJS 4, 'tdStyle' by later versions
+        metaData.style = style;
+        metaData.tdStyle = style;
+    }
+
+    /**
+     * Returns the content of a form as entries with field, description, type and value.
+     * Only values are requested for each procedure, the schema of the form is requested once and cached.
+     */
+    static getContentEntries(context, procedureId, data, callback, onFailure) {
+        const contentValuesData = Object.assign({ id: procedureId }, data);
+        FormInfoPlugin.executeCached(
+            context,
+            'getContentValues',
+            contentValuesData,
             (response) => {
                 if (response.status.code < 0) {
                     onFailure();
                     return;
                 }
-                response.result.forEach((formEntry) => {
-                    if (formEntry.type === 'BUTTON' || formEntry.type === 'FORM_REFERENCE' || formEntry.type === 'SUBFORM') {
+                const contentValues = response.result;
+                FormInfoPlugin.getFormSchema(context, contentValues.formName, contentValues.schemaVersion, (schema) => {
+                    if (schema.version !== contentValues.schemaVersion) {
+                        // Form has been changed in the meantime, cached values and schema must not be used again
+                        delete FormInfoPlugin.schemaCache[contentValues.formName];
+                        FormInfoPlugin.requestCache.delete(FormInfoPlugin.cacheKey('getContentValues', contentValuesData));
+                        FormInfoPlugin.requestCache.delete(FormInfoPlugin.cacheKey('getFormSchema', { formName: contentValues.formName }));
+                        onFailure();
                         return;
                     }
-                    if (formEntry.type === 'SECTION') {
-                        items.push({
-                            html: `<div style="margin: 2px 2px 2px 0; border: 1px solid lightgray; background: linear-gradient(whitesmoke, lightgray); white-space: nowrap; font-weight: bold; font-size: 16px !important">${formEntry.description}</div>`,
-                        });
-                        items.push({
-                            html: '<hr style="border-style: dashed"/>'
-                        });
-                    }
-                    if (formEntry.type === 'GROUP') {
-                        items.push({
-                            html: `<div style="margin: 2px 2px 2px 0; white-space: nowrap; font-weight: bold; font-size: 16px !important">${formEntry.description}</div>`,
-                        });
-                        items.push({
-                            html: '<hr style="border-style: dashed"/>'
-                        });
-                    }
-                    if (formEntry.type === 'INPUT' && typeof formEntry.value == 'string' && formEntry.value.trim().length > 0) {
-                        items.push({
-                            cls: 'infoBoxLabel',
-                            text: formEntry.description,
-                        });
-                        items.push({
-                            text: formEntry.value,
-                        });
-                    }
-                    if (formEntry.type === 'INPUT' && formEntry.value && typeof formEntry.value == 'object') {
-                        items.push({
-                            cls: 'infoBoxLabel',
-                            text: formEntry.description,
-                        });
-                        items.push({
-                            html: `<code style="color: gray">${JSON.stringify(formEntry.value)}</code>`,
-                        });
-                    }
-                });
-                showDialog();
-            },
-            false
+                    callback(schema.fields.map((schemaField, index) => ({
+                        field: schemaField.field,
+                        description: schemaField.description,
+                        type: schemaField.type,
+                        value: contentValues.values[index]
+                    })));
+                }, onFailure);
+            }
         );
+    }
 
-        const onFailure = () => {
-            Ext.MessageBox.show({
-                title: 'Hinweis',
-                msg: 'Plugin "FormInfo" nicht verfügbar oder Fehler beim Ermitteln der Formularinhalte.',
-                buttons: Ext.MessageBox.OKCANCEL
-            });
-        };
-
-        const showDialog = () => {
-            var table = Ext.create('Ext.panel.Panel', {
-                layout: {
-                    type: 'table',
-                    columns: 2
-                },
-                bodyPadding: 8,
-                defaults: {
-                    xtype: 'label'
-                },
-                items: items,
-                flex: 1,
-                overflowY: 'scroll'
-            });
-
-            Ext.create('Ext.window.Window', {
-                title: 'Info',
-                height: 600,
-                width: 800,
-                layout: 'fit',
-                items: [table]
-            }).show();
+    static getFormSchema(context, formName, schemaVersion, callback, onFailure) {
+        const cachedSchema = FormInfoPlugin.schemaCache[formName];
+        if (cachedSchema && (!schemaVersion || cachedSchema.version === schemaVersion)) {
+            callback(cachedSchema);
+            return;
+        }
+        if (cachedSchema) {
+            // Do not use the cached response containing the outdated schema
+            FormInfoPlugin.requestCache.delete(FormInfoPlugin.cacheKey('getFormSchema', { formName: formName }));
         }
+        FormInfoPlugin.executeForResult(context, 'getFormSchema', { formName: formName }, (schema) => {
+            FormInfoPlugin.schemaCache[formName] = schema;
+            callback(schema);
+        }, onFailure);
     }
 
     static getMainFormProcedureId(context, procedureId, callback) {
-        context.executePluginMethod(
-            'FormInfoPlugin',
+        FormInfoPlugin.executeCached(
+            context,
             'getMainFormProcedureId',
             { id: procedureId },
             (response) => {
@@ -130,13 +192,139 @@ class FormInfoPlugin {
                 if (response.status.message) {
                     console.warn(response.status.message);
                 }
-            },
-            false
+            }
         )
     }
+
+    static getRootProcedureId(context, procedureId, callback) {
+        FormInfoPlugin.executeForResult(context, 'getRootProcedureId', { id: procedureId }, callback);
+    }
+
+    static getSubFormTree(context, procedureId, callback) {
+        FormInfoPlugin.executeForResult(context, 'getSubFormTree', { id: procedureId }, callback);
+    }
+
+    /**
+     * Executes a plugin method and calls the callback with the result. The optional failure callback
+     * is called with the response if the plugin method fails.
+     */
+    static executeForResult(context, method, data, callback, onFailure) {
+        FormInfoPlugin.executeCached(
+            context,
+            method,
+            data,
+            (response) => {
+                if (response.status.code === 1) {
+                    callback(response.result);
+                    return;
+                }
+                if (response.status.exception) {
+                    console.error(response.status.exception.cause.message);
+                } else if (response.status.message) {
+                    console.warn(response.status.message);
+                }
+                if (onFailure) {
+                    onFailure(response);
+                }
+            }
+        )
+    }
+
+    /**
+     * Executes a plugin method. Successful responses are cached for a short time and
+     * concurrent calls with the same method and data share a single request.
+     */
+    static executeCached(context, method, data, callback) {
+        const key = FormInfoPlugin.cacheKey(method, data);
+        const now = Date.now();
+        const cached = FormInfoPlugin.requestCache.get(key);
+
+        if (cached && cached.pending) {
+            cached.callbacks.push(callback);
+            return;
+        }
+        if (cached && cached.expires > now) {
+            callback(cached.response);
+            return;
+        }
+
+        FormInfoPlugin.removeExpired(now);
+        const pending = { pending: true, callbacks: [callback] };
+        FormInfoPlugin.requestCache.set(key, pending);
+
+        let settled = false;
+        const settle = (response) => {
+            if (settled) {
+                return;
+            }
+            settled = true;
+            clearTimeout(timeout);
+            if (FormInfoPlugin.requestCache.get(key) === pending) {
+                if (response.status.code === 1) {
+                    FormInfoPlugin.requestCache.set(key, { response: response, expires: Date.now() + FormInfoPlugin.cacheTtl });
+                } else {
+                    FormInfoPlugin.requestCache.delete(key);
+                }
+            }
+            pending.callbacks.forEach((waiting) => waiting(response));
+        };
+        // Waiting callers must not be blocked forever if there is no response
+        const timeout = setTimeout(
+            () => settle(FormInfoPlugin.failureResponse(`No response of plugin method '${method}'`)),
+            FormInfoPlugin.requestTimeout
+        );
+
+        try {
+            context.executePluginMethod('FormInfoPlugin', method, data, settle, false);
+        } catch (e) {
+            settle(FormInfoPlugin.failureResponse(`Cannot execute plugin method '${method}': ${e}`));
+        }
+    }
+
+    static cacheKey(method, data) {
+        return method + ':' + JSON.stringify(data);
+    }
+
+    static failureResponse(message) {
+        return { status: { code: -1, message: message } };
+    }
+
+    static removeExpired(now) {
+        FormInfoPlugin.requestCache.forEach((entry, key) => {
+            if (!entry.pending && entry.expires <= now) {
+                FormInfoPlugin.requestCache.delete(key);
+            }
+        });
+    }
+
+    /**
+     * Removes all cached responses and schemas
+     */
+    static clearCache() {
+        FormInfoPlugin.requestCache.clear();
+        FormInfoPlugin.schemaCache = {};
+    }
 }
 
+/**
+ * Schemas of forms by form name
+ */
+FormInfoPlugin.schemaCache = {};
+
+/**
+ * Cached responses and pending requests by method and data
+ */
+FormInfoPlugin.requestCache = new Map();
 
+/**
+ * Time to live of cached responses in milliseconds
+ */
+FormInfoPlugin.cacheTtl = 30000;
+
+/**
+ * Time in milliseconds after which a request without response is considered as failed
+ */
+FormInfoPlugin.requestTimeout = 60000;
 
 /**
  * Wrapper for use with ExtJS
@@ -149,6 +337,11 @@ class FormInfoPlugin {
 Ext.define('FormInfoPlugin', {
     statics: {
         showFormContentInfo: FormInfoPlugin.showFormContentInfo,
-        getMainFormProcedureId: FormInfoPlugin.getMainFormProcedureId
+        getContentEntries: FormInfoPlugin.getContentEntries,
+        getFormSchema: FormInfoPlugin.getFormSchema,
+        getMainFormProcedureId: FormInfoPlugin.getMainFormProcedureId,
+        getRootProcedureId: FormInfoPlugin.getRootProcedureId,
+        getSubFormTree: FormInfoPlugin.getSubFormTree,
+        clearCache: FormInfoPlugin.clearCache
     }
 });
\ No newline at end of file
@@ -0,0 +1,311 @@
+package de.ukw.ccc.onkostar.forminfo;
+
+import de.ukw.ccc.onkostar.forminfo.services.LoadTestEnvironment;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test of FormInfoPlugin methods called from many threads against an embedded database.
+ * Configuration is read from system properties 'loadtest.*', results are printed and written as JSON
+ * to 'target/loadtest-result.json' or the file given by 'loadtest.output'.
+ * Service settings can be passed as system properties 'forminfo.*'. Each worker uses its own random generator
+ * split from 'loadtest.seed', so runs with same configuration execute the same operations per worker.
+ */
+public class FormInfoLoadTest {
+
+    enum Operation {
+        GET_CONTENT("getContent", 50),
+        GET_MAIN_FORM_PROCEDURE_ID("getMainFormProcedureId", 25),
+        GET_SUB_FORM_PROCEDURE_IDS("getSubFormProcedureIds", 25);
+
+        final String methodName;
+        final int weight;
+
+        Operation(String methodName, int weight) {
+            this.methodName = methodName;
+            this.weight = weight;
+        }
+
+        static Operation random(SplittableRandom random) {
+            var value = random.nextInt(100);
+            for (var operation : values()) {
+                value -= operation.weight;
+                if (value < 0) {
+                    return operation;
+                }
+            }
+            return GET_CONTENT;
+        }
+    }
+
+    private final int threads = Integer.getInteger("loadtest.threads", 32);
+
+    private final Duration warmup = Duration.ofSeconds(Integer.getInteger("loadtest.warmup", 5));
+
+    private final Duration duration = Duration.ofSeconds(Integer.getInteger("loadtest.duration", 30));
+
+    private final Duration apiLatency = Duration.ofMillis(Integer.getInteger("loadtest.api-latency", 5));
+
+    private final int mainForms = Integer.getInteger("loadtest.main-forms", 200);
+
+    private final int subForms = Math.max(1, Integer.getInteger("loadtest.sub-forms", 5));
+
+    private final int hotMainForms = Math.max(1, Integer.getInteger("loadtest.hot-main-forms", 20));
+
+    private final int fields = Integer.getInteger("loadtest.fields", 100);
+
+    private final long seed = Long.getLong("loadtest.seed", 1L);
+
+    private final Path output = Path.of(System.getProperty("loadtest.output", "target/loadtest-result.json"));
+
+    public static void main(String[] args) throws Exception {
+        new FormInfoLoadTest().run();
+    }
+
+    void run() throws Exception {
+        var settings = new Properties();
+        System.getProperties().stringPropertyNames().stream()
+                .filter(name -> name.startsWith("forminfo."))
+                .forEach(name -> settings.setProperty(name, System.getProperty(name)));
+
+        var environment = new LoadTestEnvironment(mainForms, subForms, fields, apiLatency, settings);
+        try {
+            var plugin = new FormInfoPlugin(environment.getService(), environment.getMetrics(), environment.getHierarchyIndex());
+
+            var random = new SplittableRandom(seed);
+            runPhase(plugin, environment, warmup, random);
+            environment.getMetrics().reset();
+            environment.resetStatementCount();
+
+            var recorders = runPhase(plugin, environment, duration, random);
+            var result = toResult(recorders, environment, settings);
+
+            Files.createDirectories(output.toAbsolutePath().getParent());
+            Files.writeString(output, toJson(result, "") + "\n", StandardCharsets.UTF_8);
+            System.out.println(toJson(result, ""));
+            System.out.println("Results written to " + output.toAbsolutePath());
+        } finally {
+            environment.close();
+        }
+    }
+
+    private List<Recorder> runPhase(
+            FormInfoPlugin plugin,
+            LoadTestEnvironment environment,
+            Duration phaseDuration,
+            SplittableRandom phaseRandom
+    ) throws InterruptedException {
+        var recorders = new ArrayList<Recorder>();
+        var workers = new ArrayList<Thread>();
+        var start = new CountDownLatch(1);
+        var endNanos = new AtomicLong();
+
+        for (int i = 0; i < threads; i++) {
+            var recorder = new Recorder();
+            recorders.add(recorder);
+            // Split in order of workers to get the same sequence for each worker on every run
+            var random = phaseRandom.split();
+            var worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                while (System.nanoTime() - endNanos.get() < 0) {
+                    var operation = Operation.random(random);
+                    var mainFormProcedureId = 1 + random.nextInt(Math.min(hotMainForms, mainForms));
+                    var startNanos = System.nanoTime();
+                    try {
+                        execute(plugin, environment, operation, mainFormProcedureId);
+                        recorder.record(operation, System.nanoTime() - startNanos, false);
+                    } catch (RuntimeException e) {
+                        recorder.record(operation, System.nanoTime() - startNanos, true);
+                    }
+                }
+            }, "loadtest-" + i);
+            workers.add(worker);
+            worker.start();
+        }
+
+        endNanos.set(System.nanoTime() + phaseDuration.toNanos());
+        start.countDown();
+        for (var worker : workers) {
+            worker.join();
+        }
+        return recorders;
+    }
+
+    private static void execute(FormInfoPlugin plugin, LoadTestEnvironment environment, Operation operation, int mainFormProcedureId) {
+        switch (operation) {
+            case GET_CONTENT:
+                plugin.getContent(Map.of("id", mainFormProcedureId));
+                break;
+            case GET_MAIN_FORM_PROCEDURE_ID:
+                plugin.getMainFormProcedureId(Map.of("id", environment.getSubFormProcedureId(mainFormProcedureId)));
+                break;
+            case GET_SUB_FORM_PROCEDURE_IDS:
+                plugin.getSubFormProcedureIds(Map.of("id", mainFormProcedureId));
+                break;
+            default:
+                throw new IllegalArgumentException(operation.name());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> toResult(List<Recorder> recorders, LoadTestEnvironment environment, Properties settings) {
+        var seconds = duration.toNanos() / 1_000_000_000.0;
+        var stats = environment.getMetrics().getStats();
+        var methodStats = (Map<String, Map<String, Object>>) stats.get("methods");
+
+        var config = new LinkedHashMap<String, Object>();
+        config.put("threads", threads);
+        config.put("warmupSeconds", warmup.toSeconds());
+        config.put("durationSeconds", duration.toSeconds());
+        config.put("apiLatencyMillis", apiLatency.toMillis());
+        config.put("mainForms", mainForms);
+        config.put("subForms", subForms);
+        config.put("hotMainForms", hotMainForms);
+        config.put("fields", fields);
+        config.put("seed", seed);
+        config.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        config.put("settings", new LinkedHashMap<>(settings));
+
+        var operations = new LinkedHashMap<String, Object>();
+        long totalRequests = 0;
+        long totalErrors = 0;
+        for (var operation : Operation.values()) {
+            var latencies = Recorder.merge(recorders, operation);
+            var errors = recorders.stream().mapToLong(recorder -> recorder.errors[operation.ordinal()]).sum();
+            totalRequests += latencies.length + errors;
+            totalErrors += errors;
+
+            var operationResult = new LinkedHashMap<String, Object>();
+            operationResult.put("requests", latencies.length + errors);
+            operationResult.put("errors", errors);
+            operationResult.put("throughputPerSecond", latencies.length / seconds);
+            operationResult.put("p50Millis", percentile(latencies, 0.50));
+            operationResult.put("p95Millis", percentile(latencies, 0.95));
+            operationResult.put("p99Millis", percentile(latencies, 0.99));
+            operationResult.put("maxMillis", latencies.length == 0 ? 0.0 : latencies[latencies.length - 1] / 1_000_000.0);
+            var pluginStats = methodStats.get("FormInfoPlugin." + operation.methodName);
+            operationResult.put("sqlStatementsPerRequest", null == pluginStats ? 0.0 : pluginStats.get("meanSqlStatements"));
+            operations.put(operation.methodName, operationResult);
+        }
+
+        var totals = new LinkedHashMap<String, Object>();
+        totals.put("requests", totalRequests);
+        totals.put("errors", totalErrors);
+        totals.put("throughputPerSecond", totalRequests / seconds);
+        totals.put("sqlStatements", environment.getStatementCount());
+        totals.put("sqlStatementsPerRequest", totalRequests == 0 ? 0.0 : (double) environment.getStatementCount() / totalRequests);
+
+        var result = new LinkedHashMap<String, Object>();
+        result.put("timestamp", Instant.now().toString());
+        result.put("config", config);
+        result.put("totals", totals);
+        result.put("operations", operations);
+        result.put("caches", stats.get("caches"));
+        result.put("status", stats.get("status"));
+        return result;
+    }
+
+    /**
+     * Returns the percentile of sorted latencies in milliseconds using nearest rank
+     */
+    static double percentile(long[] sortedNanos, double percentile) {
+        if (sortedNanos.length == 0) {
+            return 0.0;
+        }
+        var rank = (int) Math.ceil(percentile * sortedNanos.length);
+        return sortedNanos[Math.max(0, rank - 1)] / 1_000_000.0;
+    }
+
+    static String toJson(Object value, String indent) {
+        if (value instanceof Map) {
+            var map = (Map<?, ?>) value;
+            if (map.isEmpty()) {
+                return "{}";
+            }
+            var nextIndent = indent + "  ";
+            var result = new StringBuilder("{\n");
+            var first = true;
+            for (var entry : map.entrySet()) {
+                if (!first) {
+                    result.append(",\n");
+                }
+                first = false;
+                result.append(nextIndent).append(toJson(String.valueOf(entry.getKey()), nextIndent))
+                        .append(": ").append(toJson(entry.getValue(), nextIndent));
+            }
+            return result.append("\n").append(indent).append("}").toString();
+        }
+        if (value instanceof Double && !Double.isFinite((Double) value)) {
+            return "null";
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+        }
+        if (null == value) {
+            return "null";
+        }
+        var result = new StringBuilder("\"");
+        for (var c : value.toString().toCharArray()) {
+            if (c == '"' || c == '\\') {
+                result.append('\\').append(c);
+            } else if (c < 0x20) {
+                result.append(String.format("\\u%04x", (int) c));
+            } else {
+                result.append(c);
+            }
+        }
+        return result.append("\"").toString();
+    }
+
+    /**
+     * Latencies and errors recorded by a single thread
+     */
+    static class Recorder {
+        private final long[][] latencies = new long[Operation.values().length][1024];
+        private final int[] counts = new int[Operation.values().length];
+        private final long[] errors = new long[Operation.values().length];
+
+        void record(Operation operation, long nanos, boolean error) {
+            var index = operation.ordinal();
+            if (error) {
+                errors[index]++;
+                return;
+            }
+            if (counts[index] == latencies[index].length) {
+                latencies[index] = Arrays.copyOf(latencies[index], latencies[index].length * 2);
+            }
+            latencies[index][counts[index]++] = nanos;
+        }
+
+        static long[] merge(List<Recorder> recorders, Operation operation) {
+            var index = operation.ordinal();
+            var result = new long[recorders.stream().mapToInt(recorder -> recorder.counts[index]).sum()];
+            var position = 0;
+            for (var recorder : recorders) {
+                System.arraycopy(recorder.latencies[index], 0, result, position, recorder.counts[index]);
+                position += recorder.counts[index];
+            }
+            Arrays.sort(result);
+            return result;
+        }
+    }
+
+}
@@ -0,0 +1,240 @@
+package de.ukw.ccc.onkostar.forminfo.services;
+
+import de.itc.onkostar.api.IOnkostarApi;
+import de.itc.onkostar.api.Item;
+import de.itc.onkostar.api.Procedure;
+import org.h2.jdbcx.JdbcDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Embedded H2 database containing a synthetic Onkostar-like schema and a stubbed IOnkostarApi
+ */
+class BenchmarkDatabase {
+
+    static final int CATALOGUE_VERSION_ID = 1;
+
+    static final int CATALOGUE_SIZE = 50;
+
+    private static final Set<String> STATEMENT_METHODS = Set.of("createStatement", "prepareStatement", "prepareCall");
+
+    private final AtomicLong statementCount = new AtomicLong();
+
+    private final DataSource dataSource;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<Integer, Procedure> procedures = new HashMap<>();
+
+    private final IOnkostarApi onkostarApi;
+
+    private volatile long apiLatencyNanos;
+
+    private int nextFormEntryId = 1;
+
+    BenchmarkDatabase(String name) {
+        var h2DataSource = new JdbcDataSource();
+        h2DataSource.setURL("jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        this.dataSource = countingDataSource(h2DataSource);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.onkostarApi = mock(IOnkostarApi.class, withSettings().stubOnly());
+        doAnswer(invocation -> {
+            simulateApiLatency();
+            return procedures.get(invocation.<Integer>getArgument(0));
+        }).when(onkostarApi).getProcedure(anyInt());
+        createSchema();
+    }
+
+    private void createSchema() {
+        jdbcTemplate.execute("CREATE TABLE data_form (id INT PRIMARY KEY, name VARCHAR(255))");
+        jdbcTemplate.execute("CREATE TABLE data_form_entry (id INT PRIMARY KEY, data_form_id INT, name VARCHAR(255), " +
+                "description VARCHAR(255), type VARCHAR(64), element_parent_id INT, position INT)");
+        jdbcTemplate.execute("CREATE TABLE prozedur (id INT PRIMARY KEY, hauptprozedur_id INT, data_form_id INT)");
+        jdbcTemplate.execute("CREATE TABLE property_catalogue_version_entry (id INT AUTO_INCREMENT PRIMARY KEY, " +
+                "property_version_id INT, code VARCHAR(64), shortdesc VARCHAR(255))");
+        jdbcTemplate.execute("CREATE INDEX idx_dfe_form ON data_form_entry (data_form_id)");
+        jdbcTemplate.execute("CREATE INDEX idx_prozedur_parent ON prozedur (hauptprozedur_id)");
+        jdbcTemplate.execute("CREATE INDEX idx_pcve ON property_catalogue_version_entry (property_version_id, code)");
+
+        for (int i = 0; i < CATALOGUE_SIZE; i++) {
+            jdbcTemplate.update(
+                    "INSERT INTO property_catalogue_version_entry (property_version_id, code, shortdesc) VALUES (?, ?, ?)",
+                    CATALOGUE_VERSION_ID, "C" + i, "Katalogeintrag " + i
+            );
+        }
+    }
+
+    /**
+     * Creates a synthetic form. Input fields are grouped by ten into chains of nested containers
+     * of given depth. The catalogue density is the share of input fields with catalogue values.
+     */
+    SyntheticForm createForm(int formId, int fields, int depth, double catalogueDensity) {
+        var formName = "BenchmarkForm" + formId;
+        jdbcTemplate.update("INSERT INTO data_form (id, name) VALUES (?, ?)", formId, formName);
+
+        var form = new SyntheticForm(formId, formName);
+        Integer parentId = null;
+        var position = 0;
+        for (int i = 0; i < fields; i++) {
+            if (i % 10 == 0) {
+                parentId = null;
+                for (int level = 1; level < depth; level++) {
+                    var type = level == 1 ? "section" : "group";
+                    parentId = insertFormEntry(formId, "container" + i + "_" + level, type, parentId, position++);
+                }
+            }
+            var fieldName = "field" + i;
+            insertFormEntry(formId, fieldName, "input", parentId, position++);
+
+            if (Math.floor((i + 1) * catalogueDensity) > Math.floor(i * catalogueDensity)) {
+                form.values.put(fieldName, catalogueItem("C" + (i % CATALOGUE_SIZE)));
+            } else if (i % 5 == 0) {
+                form.values.put(fieldName, dateItem());
+            } else {
+                form.values.put(fieldName, stringItem("Wert " + i));
+            }
+        }
+        return form;
+    }
+
+    private int insertFormEntry(int formId, String name, String type, Integer parentId, int position) {
+        var id = nextFormEntryId++;
+        jdbcTemplate.update(
+                "INSERT INTO data_form_entry (id, data_form_id, name, description, type, element_parent_id, position) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                id, formId, name, "Beschreibung von " + name, type, parentId, position
+        );
+        return id;
+    }
+
+    Procedure createProcedure(int id, Integer parentId, SyntheticForm form) {
+        jdbcTemplate.update("INSERT INTO prozedur (id, hauptprozedur_id, data_form_id) VALUES (?, ?, ?)", id, parentId, form.formId);
+
+        var procedure = mock(Procedure.class, withSettings().stubOnly());
+        doReturn(id).when(procedure).getId();
+        doReturn(form.formName).when(procedure).getFormName();
+        doAnswer(invocation -> form.values.get(invocation.<String>getArgument(0))).when(procedure).getValue(anyString());
+        procedures.put(id, procedure);
+        return procedure;
+    }
+
+    private static Item catalogueItem(String code) {
+        var item = mock(Item.class, withSettings().stubOnly());
+        doReturn(String.valueOf(CATALOGUE_VERSION_ID)).when(item).getPropertyCatalogueVersion();
+        doReturn(code).when(item).getString();
+        doReturn(code).when(item).getValue();
+        return item;
+    }
+
+    private static Item dateItem() {
+        var item = mock(Item.class, withSettings().stubOnly());
+        var date = new Date(1672531200000L);
+        doReturn(date).when(item).getDate();
+        doReturn(date).when(item).getValue();
+        return item;
+    }
+
+    private static Item stringItem(String value) {
+        var item = mock(Item.class, withSettings().stubOnly());
+        doReturn(value).when(item).getString();
+        doReturn(value).when(item).getValue();
+        return item;
+    }
+
+    private DataSource countingDataSource(DataSource target) {
+        return (DataSource) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{DataSource.class},
+                (proxy, method, args) -> {
+                    var result = invoke(target, method, args);
+                    if (result instanceof Connection) {
+                        return countingConnection((Connection) result);
+                    }
+                    return result;
+                }
+        );
+    }
+
+    private Connection countingConnection(Connection target) {
+        return (Connection) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (STATEMENT_METHODS.contains(method.getName())) {
+                        statementCount.incrementAndGet();
+                    }
+                    return invoke(target, method, args);
+                }
+        );
+    }
+
+    private static Object invoke(Object target, java.lang.reflect.Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void simulateApiLatency() throws InterruptedException {
+        if (apiLatencyNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(apiLatencyNanos);
+        }
+    }
+
+    /**
+     * Sets the time each call of IOnkostarApi.getProcedure() is delayed
+     */
+    void setApiLatency(Duration apiLatency) {
+        this.apiLatencyNanos = apiLatency.toNanos();
+    }
+
+    DataSource getDataSource() {
+        return dataSource;
+    }
+
+    JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    IOnkostarApi getOnkostarApi() {
+        return onkostarApi;
+    }
+
+    long getStatementCount() {
+        return statementCount.get();
+    }
+
+    void resetStatementCount() {
+        statementCount.set(0);
+    }
+
+    static class SyntheticForm {
+        final int formId;
+        final String formName;
+        final Map<String, Item> values = new HashMap<>();
+
+        SyntheticForm(int formId, String formName) {
+            this.formId = formId;
+            this.formName = formName;
+        }
+    }
+
+}
@@ -0,0 +1,47 @@
+package de.ukw.ccc.onkostar.forminfo.services;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.function.Consumer;
+
+/**
+ * Runs all benchmarks of FormInfoServiceBenchmark.
+ * Prints SQL statements per call, runs JMH including allocation rates by GC profiler
+ * and writes JMH results to 'target/jmh-result.json'.
+ */
+public class FormInfoBenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        printStatementsPerCall();
+
+        var options = new OptionsBuilder()
+                .include(FormInfoServiceBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-result.json")
+                .build();
+
+        new Runner(options).run();
+    }
+
+    private static void printStatementsPerCall() {
+        var database = FormInfoServiceBenchmark.createDatabase("statements", 100, 3, 0.5);
+        var service = FormInfoServiceBenchmark.createService(database);
+
+        System.out.println("SQL statements per call (100 fields, depth 3, catalogue density 0.5)");
+        printStatements(database, "getFormInfo (cold cache)", s -> s.getFormInfo(FormInfoServiceBenchmark.MAIN_FORM_PROCEDURE_ID), service);
+        printStatements(database, "getFormInfo (warm cache)", s -> s.getFormInfo(FormInfoServiceBenchmark.MAIN_FORM_PROCEDURE_ID), service);
+        printStatements(database, "getMainFormProcedureId", s -> s.getMainFormProcedureId(FormInfoServiceBenchmark.SUB_FORM_PROCEDURE_ID), service);
+        printStatements(database, "getSubFormProcedureIds", s -> s.getSubFormProcedureIds(FormInfoServiceBenchmark.MAIN_FORM_PROCEDURE_ID), service);
+    }
+
+    private static void printStatements(BenchmarkDatabase database, String name, Consumer<DefaultFormInfoService> call, DefaultFormInfoService service) {
+        database.resetStatementCount();
+        call.accept(service);
+        System.out.printf("  %-30s %d%n", name, database.getStatementCount());
+    }
+
+}
@@ -0,0 +1,97 @@
+package de.ukw.ccc.onkostar.forminfo.services;
+
+import de.ukw.ccc.onkostar.forminfo.Result;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of DefaultFormInfoService using an embedded database
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FormInfoServiceBenchmark {
+
+    static final int MAIN_FORM_PROCEDURE_ID = 1;
+
+    static final int SUB_FORM_PROCEDURE_ID = 2;
+
+    static final int SUB_FORM_COUNT = 10;
+
+    @Param({"10", "100", "300"})
+    public int fields;
+
+    @Param({"1", "3"})
+    public int depth;
+
+    @Param({"0.0", "0.5"})
+    public double catalogueDensity;
+
+    BenchmarkDatabase database;
+
+    DefaultFormInfoService service;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        database = createDatabase(String.format("bench_%d_%d_%s", fields, depth, catalogueDensity), fields, depth, catalogueDensity);
+        service = createService(database);
+    }
+
+    static DefaultFormInfoService createService(BenchmarkDatabase database) {
+        return new DefaultFormInfoService(
+                database.getOnkostarApi(),
+                database.getJdbcTemplate(),
+                new FormInfoMetrics(),
+                new FormInfoSettings(new Properties())
+        );
+    }
+
+    static BenchmarkDatabase createDatabase(String name, int fields, int depth, double catalogueDensity) {
+        var database = new BenchmarkDatabase(name);
+        var form = database.createForm(1, fields, depth, catalogueDensity);
+        database.createProcedure(MAIN_FORM_PROCEDURE_ID, null, form);
+        for (int i = 0; i < SUB_FORM_COUNT; i++) {
+            database.createProcedure(SUB_FORM_PROCEDURE_ID + i, MAIN_FORM_PROCEDURE_ID, form);
+        }
+        database.resetStatementCount();
+        return database;
+    }
+
+    @Benchmark
+    public List<Result> getFormInfo() {
+        return service.getFormInfo(MAIN_FORM_PROCEDURE_ID);
+    }
+
+    @Benchmark
+    public List<Result> getFormInfoWithColdCache() {
+        return createService(database).getFormInfo(MAIN_FORM_PROCEDURE_ID);
+    }
+
+    @Benchmark
+    public int getMainFormProcedureId() {
+        return service.getMainFormProcedureId(SUB_FORM_PROCEDURE_ID);
+    }
+
+    @Benchmark
+    public List<Integer> getSubFormProcedureIds() {
+        return service.getSubFormProcedureIds(MAIN_FORM_PROCEDURE_ID);
+    }
+
+}
@@ -0,0 +1,92 @@
+package de.ukw.ccc.onkostar.forminfo.services;
+
+import java.time.Duration;
+import java.util.Properties;
+
+/**
+ * Embedded database and service used by the load test, accessible from other packages
+ */
+public class LoadTestEnvironment {
+
+    private final BenchmarkDatabase database;
+
+    private final FormInfoMetrics metrics;
+
+    private final DefaultFormInfoService service;
+
+    private final ProcedureHierarchyIndex hierarchyIndex;
+
+    private final int mainForms;
+
+    private final int subForms;
+
+    /**
+     * Creates a database containing main form procedures with given number of sub form procedures each.
+     * Main form procedures have IDs from 1 to mainForms.
+     *
+     * @param mainForms  Number of main form procedures
+     * @param subForms   Number of sub form procedures per main form procedure
+     * @param fields     Number of input fields per form
+     * @param apiLatency Simulated latency of IOnkostarApi.getProcedure()
+     * @param settings   Settings of the service
+     */
+    public LoadTestEnvironment(int mainForms, int subForms, int fields, Duration apiLatency, Properties settings) {
+        this.mainForms = mainForms;
+        this.subForms = subForms;
+        this.database = new BenchmarkDatabase("loadtest");
+        var form = database.createForm(1, fields, 3, 0.5);
+        var subFormProcedureId = mainForms + 1;
+        for (int id = 1; id <= mainForms; id++) {
+            database.createProcedure(id, null, form);
+            for (int i = 0; i < subForms; i++) {
+                database.createProcedure(subFormProcedureId++, id, form);
+            }
+        }
+        database.setApiLatency(apiLatency);
+
+        this.metrics = new FormInfoMetrics();
+        var serviceSettings = new FormInfoSettings(settings);
+        this.hierarchyIndex = new ProcedureHierarchyIndex(database.getDataSource(), metrics, serviceSettings);
+        this.service = new DefaultFormInfoService(
+                database.getOnkostarApi(),
+                new CountingJdbcTemplate(database.getDataSource(), metrics),
+                metrics,
+                serviceSettings,
+                hierarchyIndex
+        );
+        this.service.onApplicationEvent(null);
+        database.resetStatementCount();
+    }
+
+    /**
+     * Returns the ID of the first sub form procedure of given main form procedure
+     */
+    public int getSubFormProcedureId(int mainFormProcedureId) {
+        return mainForms + 1 + (mainFormProcedureId - 1) * subForms;
+    }
+
+    public FormInfoService getService() {
+        return service;
+    }
+
+    public ProcedureHierarchyIndex getHierarchyIndex() {
+        return hierarchyIndex;
+    }
+
+    public FormInfoMetrics getMetrics() {
+        return metrics;
+    }
+
+    public long getStatementCount() {
+        return database.getStatementCount();
+    }
+
+    public void resetStatementCount() {
+        database.resetStatementCount();
+    }
+
+    public void close() throws Exception {
+        service.destroy();
+    }
+
+}
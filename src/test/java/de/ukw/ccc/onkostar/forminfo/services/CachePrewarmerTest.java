@@ -0,0 +1,79 @@
+package de.ukw.ccc.onkostar.forminfo.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CachePrewarmerTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private static FormInfoSettings settings(String timeBudget) {
+        var properties = new Properties();
+        properties.setProperty(FormInfoSettings.PREWARM_ENABLED, "true");
+        properties.setProperty(FormInfoSettings.PREWARM_FORMS, "2");
+        properties.setProperty(FormInfoSettings.PREWARM_SAMPLES_PER_FORM, "5");
+        properties.setProperty(FormInfoSettings.PREWARM_TIME_BUDGET, timeBudget);
+        return new FormInfoSettings(properties);
+    }
+
+    @Test
+    void testShouldPrewarmMostUsedForms() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq(2))).thenReturn(List.of("FormA", "FormB"));
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class), eq("FormA"), eq(5))).thenReturn(List.of(3, 2, 1));
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class), eq("FormB"), eq(5))).thenReturn(List.of(4));
+
+        var prewarmed = new ArrayList<String>();
+        var prewarmer = new CachePrewarmer(jdbcTemplate, settings("60"), (formName, procedureIds) -> prewarmed.add(formName));
+        prewarmer.run();
+
+        assertThat(prewarmed).containsExactly("FormA", "FormB");
+        assertThat(prewarmer.getState()).isEqualTo(CachePrewarmer.State.FINISHED);
+        assertThat(prewarmer.getStatus())
+                .containsEntry("formsLoaded", 2)
+                .containsEntry("formsTotal", 2)
+                .containsEntry("proceduresLoaded", 4);
+    }
+
+    @Test
+    void testShouldStopIfTimeBudgetExceeded() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq(2))).thenReturn(List.of("FormA", "FormB"));
+
+        var prewarmed = new ArrayList<String>();
+        var prewarmer = new CachePrewarmer(jdbcTemplate, settings("0"), (formName, procedureIds) -> prewarmed.add(formName));
+        prewarmer.run();
+
+        assertThat(prewarmed).isEmpty();
+        assertThat(prewarmer.getState()).isEqualTo(CachePrewarmer.State.BUDGET_EXCEEDED);
+    }
+
+    @Test
+    void testShouldNotStartIfDisabled() {
+        var prewarmer = new CachePrewarmer(jdbcTemplate, new FormInfoSettings(new Properties()), (formName, procedureIds) -> {
+        });
+        prewarmer.start();
+
+        assertThat(prewarmer.getState()).isEqualTo(CachePrewarmer.State.DISABLED);
+        assertThat(prewarmer.getStatus()).isEqualTo(Map.of(
+                "state", "DISABLED",
+                "formsLoaded", 0,
+                "formsTotal", 0,
+                "proceduresLoaded", 0
+        ));
+    }
+
+}
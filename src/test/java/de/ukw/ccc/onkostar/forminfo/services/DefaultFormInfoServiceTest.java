@@ -1,14 +1,75 @@
 package de.ukw.ccc.onkostar.forminfo.services;
 
+import de.itc.onkostar.api.IOnkostarApi;
+import de.itc.onkostar.api.Item;
+import de.itc.onkostar.api.Procedure;
+import de.ukw.ccc.onkostar.forminfo.ContentNode;
+import de.ukw.ccc.onkostar.forminfo.ExportFormat;
+import de.ukw.ccc.onkostar.forminfo.FormInfoException;
+import de.ukw.ccc.onkostar.forminfo.FormInfoOptions;
+import de.ukw.ccc.onkostar.forminfo.FormInfoResult;
+import de.ukw.ccc.onkostar.forminfo.FormReferenceResult;
+import de.ukw.ccc.onkostar.forminfo.Result;
+import de.ukw.ccc.onkostar.forminfo.SubFormNode;
+import de.ukw.ccc.onkostar.forminfo.SubFormResult;
 import de.ukw.ccc.onkostar.forminfo.Type;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+@ExtendWith(MockitoExtension.class)
 public class DefaultFormInfoServiceTest {
 
+    @Mock
+    private IOnkostarApi onkostarApi;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private DefaultFormInfoService service;
+
+    @AfterEach
+    void tearDown() {
+        this.service.destroy();
+    }
+
+    @BeforeEach
+    void setup() {
+        this.service = new DefaultFormInfoService(onkostarApi, jdbcTemplate, new FormInfoMetrics(), new FormInfoSettings(new Properties()));
+    }
+
     @Test
     void testShouldFlattenSingleEntry() {
         var actual = DefaultFormInfoService.flattenEntry(
@@ -49,4 +110,611 @@ public class DefaultFormInfoServiceTest {
         assertThat(actual.get(2).name).isEqualTo("other");
     }
 
+    @Test
+    void testShouldReturnResultsAndErrorsPerProcedureId() {
+        var procedure = mock(Procedure.class);
+        when(procedure.getId()).thenReturn(1);
+        when(procedure.getFormName()).thenReturn("TestForm");
+        when(onkostarApi.getProcedure(1)).thenReturn(procedure);
+        when(onkostarApi.getProcedure(2)).thenReturn(null);
+        doAnswer(invocation -> List.of()).when(jdbcTemplate).query(anyString(), any(Object[].class), any(RowMapper.class));
+
+        var actual = service.getFormInfos(List.of(2, 1));
+
+        assertThat(actual).containsOnlyKeys(2, 1);
+        assertThat(actual.get(1).isSuccess()).isTrue();
+        assertThat(actual.get(1).content).isEmpty();
+        assertThat(actual.get(2).isSuccess()).isFalse();
+        assertThat(actual.get(2).error).isEqualTo("No such procedure with ID '2'");
+    }
+
+    @Test
+    void testShouldReturnErrorOnlyForProcedureWithUnreadableValues() {
+        var procedure1 = mock(Procedure.class);
+        when(procedure1.getId()).thenReturn(1);
+        when(procedure1.getFormName()).thenReturn("TestForm");
+        when(procedure1.getValue("bemerkung")).thenThrow(new IllegalStateException("Deleted"));
+        var procedure2 = mock(Procedure.class);
+        when(procedure2.getId()).thenReturn(2);
+        when(procedure2.getFormName()).thenReturn("TestForm");
+        var item = mock(Item.class);
+        doReturn("Text").when(item).getValue();
+        when(procedure2.getValue("bemerkung")).thenReturn(item);
+        when(onkostarApi.getProcedure(1)).thenReturn(procedure1);
+        when(onkostarApi.getProcedure(2)).thenReturn(procedure2);
+        doAnswer(invocation -> List.of(
+                new FormDefinitionRepository.EntryRow(1, null, "bemerkung", "Bemerkung", Type.INPUT)
+        )).when(jdbcTemplate).query(anyString(), any(Object[].class), any(RowMapper.class));
+
+        var actual = service.getFormInfos(List.of(1, 2));
+
+        assertThat(actual.get(1).isSuccess()).isFalse();
+        assertThat(actual.get(1).error).isEqualTo("Cannot get content of procedure with ID '1'");
+        assertThat(actual.get(2).isSuccess()).isTrue();
+        assertThat(actual.get(2).content.get(0).value).isEqualTo("Text");
+    }
+
+    @Test
+    void testShouldBuildSubFormTreeIgnoringCycles() {
+        var actual = DefaultFormInfoService.buildSubFormTree(1, List.of(
+                new DefaultFormInfoService.HierarchyRow(1, null, 0),
+                new DefaultFormInfoService.HierarchyRow(2, 1, 1),
+                new DefaultFormInfoService.HierarchyRow(3, 1, 1),
+                new DefaultFormInfoService.HierarchyRow(4, 2, 2),
+                new DefaultFormInfoService.HierarchyRow(1, 4, 3)
+        ));
+
+        assertThat(actual.procedureId).isEqualTo(1);
+        assertThat(actual.subForms).hasSize(2);
+        assertThat(actual.subForms.get(0).procedureId).isEqualTo(2);
+        assertThat(actual.subForms.get(0).subForms).hasSize(1);
+        assertThat(actual.subForms.get(0).subForms.get(0).procedureId).isEqualTo(4);
+        assertThat(actual.subForms.get(0).subForms.get(0).subForms).isEmpty();
+        assertThat(actual.subForms.get(1).procedureId).isEqualTo(3);
+    }
+
+    @Test
+    void testShouldFindRootProcedureId() {
+        var actual = DefaultFormInfoService.findRootProcedureId(List.of(
+                new DefaultFormInfoService.HierarchyRow(4, 2, 0),
+                new DefaultFormInfoService.HierarchyRow(2, 1, 1),
+                new DefaultFormInfoService.HierarchyRow(1, null, 2)
+        ));
+
+        assertThat(actual).isEqualTo(1);
+    }
+
+    @Test
+    void testShouldThrowExceptionOnCyclicMainFormReference() {
+        var rows = List.of(
+                new DefaultFormInfoService.HierarchyRow(4, 2, 0),
+                new DefaultFormInfoService.HierarchyRow(2, 4, 1),
+                new DefaultFormInfoService.HierarchyRow(4, 2, 2)
+        );
+
+        assertThrows(FormInfoException.class, () -> DefaultFormInfoService.findRootProcedureId(rows));
+    }
+
+    @Test
+    void testShouldOnlyResolveRequestedFields() {
+        var procedure = mock(Procedure.class);
+        when(procedure.getFormName()).thenReturn("TestForm");
+        when(onkostarApi.getProcedure(1)).thenReturn(procedure);
+        doAnswer(invocation -> List.of(
+                new FormDefinitionRepository.EntryRow(1, null, "section1", "Abschnitt", Type.SECTION),
+                new FormDefinitionRepository.EntryRow(2, 1, "filled", "Ausgefüllt", Type.INPUT),
+                new FormDefinitionRepository.EntryRow(3, 1, "empty", "Leer", Type.INPUT),
+                new FormDefinitionRepository.EntryRow(4, 1, "ref", "Formularverweis", Type.FORM_REFERENCE)
+        )).when(jdbcTemplate).query(anyString(), any(Object[].class), any(RowMapper.class));
+
+        var filled = mock(Item.class);
+        doReturn("Wert").when(filled).getValue();
+        when(procedure.getValue("filled")).thenReturn(filled);
+        when(procedure.getValue("empty")).thenReturn(mock(Item.class));
+
+        var actual = service.getFormInfo(1, FormInfoOptions.builder()
+                .excludeTypes(List.of(Type.FORM_REFERENCE))
+                .skipEmptyValues(true)
+                .build());
+
+        assertThat(actual).hasSize(2);
+        assertThat(actual.get(0).field).isEqualTo("section1");
+        assertThat(actual.get(1).field).isEqualTo("filled");
+        assertThat(actual.get(1).value).isEqualTo("Wert");
+        verify(procedure, never()).getValue("ref");
+        verify(procedure, never()).getValue("section1");
+        assertThrows(UnsupportedOperationException.class, () -> actual.remove(0));
+    }
+
+    @Test
+    void testShouldNotLoadProcedureIfContentNotModified() {
+        var procedure = mock(Procedure.class);
+        when(procedure.getFormName()).thenReturn("TestForm");
+        when(onkostarApi.getProcedure(1)).thenReturn(procedure);
+        doAnswer(invocation -> List.of()).when(jdbcTemplate).query(anyString(), any(Object[].class), any(RowMapper.class));
+        doAnswer(invocation -> new String[]{"2023-01-01 12:00:00", "TestForm"})
+                .when(jdbcTemplate).queryForObject(anyString(), any(RowMapper.class), eq(1));
+
+        var first = service.getFormInfoIfModified(1, FormInfoOptions.DEFAULT, null);
+        var second = service.getFormInfoIfModified(1, FormInfoOptions.DEFAULT, first.fingerprint);
+
+        assertThat(first.notModified).isFalse();
+        assertThat(first.content).isEmpty();
+        assertThat(second.notModified).isTrue();
+        assertThat(second.fingerprint).isEqualTo(first.fingerprint);
+        assertThat(second.content).isNull();
+        verify(onkostarApi, times(1)).getProcedure(1);
+    }
+
+    @Test
+    void testShouldChangeFingerprintIfSubFormChanges() {
+        doAnswer(invocation -> List.of()).when(jdbcTemplate).query(anyString(), any(Object[].class), any(RowMapper.class));
+        doAnswer(invocation -> List.of(
+                new DefaultFormInfoService.HierarchyRow(1, null, 0),
+                new DefaultFormInfoService.HierarchyRow(2, 1, 1)
+        )).when(jdbcTemplate).query(contains("WITH RECURSIVE"), any(Object[].class), any(RowMapper.class));
+        doAnswer(invocation -> new String[]{"2023-01-01 12:00:00", "MainForm"})
+                .when(jdbcTemplate).queryForObject(anyString(), any(RowMapper.class), eq(1));
+        var subFormModifiedAt = new String[]{"2023-01-01 12:00:00"};
+        doAnswer(invocation -> {
+            var resultSet = mock(ResultSet.class);
+            when(resultSet.getInt("id")).thenReturn(2);
+            when(resultSet.getString("modified_at")).thenReturn(subFormModifiedAt[0]);
+            when(resultSet.getString("form_name")).thenReturn("SubForm");
+            ((RowCallbackHandler) invocation.getArgument(2)).processRow(resultSet);
+            return null;
+        }).when(jdbcTemplate).query(contains("IN (?)"), any(Object[].class), any(RowCallbackHandler.class));
+        var procedure = mock(Procedure.class);
+        when(procedure.getId()).thenReturn(1);
+        when(procedure.getFormName()).thenReturn("MainForm");
+        when(onkostarApi.getProcedure(1)).thenReturn(procedure);
+        when(onkostarApi.getProcedure(2)).thenReturn(null);
+        var options = FormInfoOptions.builder().subFormDepth(1).build();
+
+        var first = service.getFormInfoIfModified(1, options, null);
+        subFormModifiedAt[0] = "2023-01-02 12:00:00";
+        var second = service.getFormInfoIfModified(1, options, first.fingerprint);
+
+        assertThat(second.notModified).isFalse();
+        assertThat(second.fingerprint).isNotEqualTo(first.fingerprint);
+        // Sub form tree is only loaded up to requested depth
+        verify(jdbcTemplate, times(4)).query(contains("WITH RECURSIVE"), aryEq(new Object[]{1, 1}), any(RowMapper.class));
+    }
+
+    @Test
+    void testShouldIgnoreIfNoneMatchIfReferencesAreResolved() {
+        var procedure = mock(Procedure.class);
+        when(procedure.getFormName()).thenReturn("TestForm");
+        when(onkostarApi.getProcedure(1)).thenReturn(procedure);
+        doAnswer(invocation -> List.of()).when(jdbcTemplate).query(anyString(), any(Object[].class), any(RowMapper.class));
+        doAnswer(invocation -> new String[]{"2023-01-01 12:00:00", "TestForm"})
+                .when(jdbcTemplate).queryForObject(anyString(), any(RowMapper.class), eq(1));
+        var options = FormInfoOptions.builder().resolveReferences(true).build();
+
+        var first = service.getFormInfoIfModified(1, options, null);
+        var second = service.getFormInfoIfModified(1, options, first.fingerprint);
+
+        assertThat(second.notModified).isFalse();
+        verify(onkostarApi, times(2)).getProcedure(1);
+    }
+
+    @Test
+    void testShouldCreateDifferentFingerprints() {
+        var actual = DefaultFormInfoService.fingerprint("1", "2023-01-01 12:00:00", "TestForm", "1-1-1", ";;;false");
+
+        assertThat(actual).hasSize(32);
+        assertThat(actual).isEqualTo(DefaultFormInfoService.fingerprint("1", "2023-01-01 12:00:00", "TestForm", "1-1-1", ";;;false"));
+        assertThat(actual).isNotEqualTo(DefaultFormInfoService.fingerprint("1", "2023-01-01 12:00:01", "TestForm", "1-1-1", ";;;false"));
+    }
+
+    @Test
+    void testShouldInlineSubFormsIntoSubFormEntries() {
+        var tree = new SubFormNode(1, List.of(
+                new SubFormNode(2, List.of(new SubFormNode(4, List.of()))),
+                new SubFormNode(3, List.of())
+        ));
+        var contents = Map.of(
+                1, FormInfoResult.success("MainForm", List.of(
+                        new Result("datum", "Datum", "01.01.2023", Type.INPUT),
+                        new Result("SubFormA", "Unterformular A", null, Type.SUBFORM),
+                        new Result("SubFormB", "Unterformular B", null, Type.SUBFORM)
+                )),
+                2, FormInfoResult.success("FormB", List.of(new Result("nested", "Verschachtelt", null, Type.SUBFORM))),
+                3, FormInfoResult.success("FormA", List.of()),
+                4, FormInfoResult.failure("No such procedure with ID '4'")
+        );
+        var subFormTargets = Map.of(
+                "MainForm", Map.of("SubFormA", "FormA", "SubFormB", "FormB"),
+                "FormB", Map.of("nested", "FormC")
+        );
+
+        var actual = DefaultFormInfoService.inlineSubForms(tree, 2, contents, subFormTargets::get);
+
+        assertThat(actual).hasSize(3);
+        assertThat(actual.get(0)).isNotInstanceOf(SubFormResult.class);
+        assertThat(((SubFormResult) actual.get(1)).subForms).containsOnlyKeys(3);
+        var subFormB = (SubFormResult) actual.get(2);
+        assertThat(subFormB.subForms).containsOnlyKeys(2);
+        var nestedContent = subFormB.subForms.get(2).content;
+        assertThat(nestedContent).hasSize(2);
+        assertThat(nestedContent.get(0)).isNotInstanceOf(SubFormResult.class);
+        var unassigned = (SubFormResult) nestedContent.get(1);
+        assertThat(unassigned.field).isEqualTo(DefaultFormInfoService.UNASSIGNED_SUB_FORMS);
+        assertThat(unassigned.subForms.get(4).isSuccess()).isFalse();
+    }
+
+    @Test
+    void testShouldNotGuessEntryOfSubFormsWithoutMatchingEntry() {
+        var tree = new SubFormNode(1, List.of(new SubFormNode(2, List.of()), new SubFormNode(3, List.of())));
+        var contents = Map.of(
+                1, FormInfoResult.success("MainForm", List.of(
+                        new Result("SubFormA", "Unterformular A", null, Type.SUBFORM),
+                        new Result("SubFormB", "Unterformular B", null, Type.SUBFORM)
+                )),
+                2, FormInfoResult.success("FormA", List.of()),
+                3, FormInfoResult.success("OtherForm", List.of())
+        );
+
+        var actual = DefaultFormInfoService.inlineSubForms(tree, 1, contents, formName -> Map.of("SubFormA", "FormA", "SubFormB", "FormB"));
+
+        assertThat(actual).hasSize(3);
+        assertThat(((SubFormResult) actual.get(0)).subForms).containsOnlyKeys(2);
+        assertThat(actual.get(1)).isNotInstanceOf(SubFormResult.class);
+        assertThat(((SubFormResult) actual.get(2)).subForms).containsOnlyKeys(3);
+    }
+
+    @Test
+    void testShouldResolveFormReferencesInOneBatch() {
+        var properties = new Properties();
+        properties.setProperty(FormInfoSettings.REFERENCE_SUMMARY_FIELDS + ".RefForm", "diagnose");
+        this.service = new DefaultFormInfoService(onkostarApi, jdbcTemplate, new FormInfoMetrics(), new FormInfoSettings(properties));
+
+        doAnswer(invocation -> {
+            var formName = ((Object[]) invocation.getArgument(1))[0];
+            if ("RefForm".equals(formName)) {
+                return List.of(
+                        new FormDefinitionRepository.EntryRow(1, null, "diagnose", "Diagnose", Type.INPUT),
+                        new FormDefinitionRepository.EntryRow(2, null, "bemerkung", "Bemerkung", Type.INPUT)
+                );
+            }
+            return List.of(new FormDefinitionRepository.EntryRow(1, null, "ref", "Formularverweis", Type.FORM_REFERENCE));
+        }).when(jdbcTemplate).query(anyString(), any(Object[].class), any(RowMapper.class));
+
+        var reference = mock(Item.class);
+        doReturn(10).when(reference).getValue();
+        for (var procedureId : List.of(1, 2)) {
+            var procedure = mock(Procedure.class);
+            when(procedure.getId()).thenReturn(procedureId);
+            when(procedure.getFormName()).thenReturn("TestForm");
+            when(procedure.getValue("ref")).thenReturn(reference);
+            when(onkostarApi.getProcedure(procedureId)).thenReturn(procedure);
+        }
+
+        var diagnose = mock(Item.class);
+        doReturn("C34.1").when(diagnose).getValue();
+        var referencedProcedure = mock(Procedure.class);
+        when(referencedProcedure.getFormName()).thenReturn("RefForm");
+        when(referencedProcedure.getValue("diagnose")).thenReturn(diagnose);
+        when(onkostarApi.getProcedure(10)).thenReturn(referencedProcedure);
+
+        var options = FormInfoOptions.builder().resolveReferences(true).build();
+        var actual = service.getFormInfos(List.of(1, 2), options);
+        service.getFormInfo(1, options);
+
+        for (var result : actual.values()) {
+            var summary = ((FormReferenceResult) result.content.get(0)).reference;
+            assertThat(summary.procedureId).isEqualTo(10);
+            assertThat(summary.formName).isEqualTo("RefForm");
+            assertThat(summary.fields).containsOnly(Map.entry("diagnose", "C34.1"));
+        }
+        verify(onkostarApi, times(1)).getProcedure(10);
+        verify(referencedProcedure, never()).getValue("bemerkung");
+    }
+
+    @Test
+    void testShouldKeepUnreadableReferenceUnchanged() {
+        var properties = new Properties();
+        properties.setProperty(FormInfoSettings.REFERENCE_SUMMARY_FIELDS, "diagnose");
+        this.service = new DefaultFormInfoService(onkostarApi, jdbcTemplate, new FormInfoMetrics(), new FormInfoSettings(properties));
+
+        doAnswer(invocation -> {
+            var formName = ((Object[]) invocation.getArgument(1))[0];
+            if ("RefForm".equals(formName)) {
+                return List.of(new FormDefinitionRepository.EntryRow(1, null, "diagnose", "Diagnose", Type.INPUT));
+            }
+            return List.of(new FormDefinitionRepository.EntryRow(1, null, "ref", "Formularverweis", Type.FORM_REFERENCE));
+        }).when(jdbcTemplate).query(anyString(), any(Object[].class), any(RowMapper.class));
+
+        var reference = mock(Item.class);
+        doReturn(10).when(reference).getValue();
+        var procedure = mock(Procedure.class);
+        when(procedure.getFormName()).thenReturn("TestForm");
+        when(procedure.getValue("ref")).thenReturn(reference);
+        when(onkostarApi.getProcedure(1)).thenReturn(procedure);
+
+        var referencedProcedure = mock(Procedure.class);
+        when(referencedProcedure.getFormName()).thenReturn("RefForm");
+        when(referencedProcedure.getValue("diagnose")).thenThrow(new IllegalStateException("Deleted"));
+        when(onkostarApi.getProcedure(10)).thenReturn(referencedProcedure);
+
+        var actual = service.getFormInfo(1, FormInfoOptions.builder().resolveReferences(true).build());
+
+        assertThat(actual).hasSize(1);
+        assertThat(actual.get(0)).isNotInstanceOf(FormReferenceResult.class);
+        assertThat(actual.get(0).value).isEqualTo(10);
+    }
+
+    @Test
+    void testShouldExtractReferencedProcedureId() {
+        assertThat(DefaultFormInfoService.getReferencedProcedureId(new Result("ref", "Verweis", 42, Type.FORM_REFERENCE))).isEqualTo(42);
+        assertThat(DefaultFormInfoService.getReferencedProcedureId(new Result("ref", "Verweis", "42", Type.FORM_REFERENCE))).isEqualTo(42);
+        assertThat(DefaultFormInfoService.getReferencedProcedureId(new Result("ref", "Verweis", Map.of("id", 42), Type.FORM_REFERENCE))).isEqualTo(42);
+        assertThat(DefaultFormInfoService.getReferencedProcedureId(new Result("ref", "Verweis", 0, Type.FORM_REFERENCE))).isNull();
+        assertThat(DefaultFormInfoService.getReferencedProcedureId(new Result("ref", "Verweis", 42, Type.INPUT))).isNull();
+    }
+
+    @Test
+    void testShouldReturnSubFormProcedureIdsAsync() throws Exception {
+        doReturn(List.of(2, 3)).when(jdbcTemplate).queryForList(anyString(), eq(Integer.class), eq(1));
+
+        var actual = service.getSubFormProcedureIdsAsync(1).get(1, TimeUnit.SECONDS);
+
+        assertThat(actual).containsExactly(2, 3);
+    }
+
+    @Test
+    void testShouldExportAllProceduresOfForm() throws Exception {
+        doAnswer(invocation -> List.of(
+                new FormDefinitionRepository.EntryRow(1, null, "section1", "Abschnitt", Type.SECTION),
+                new FormDefinitionRepository.EntryRow(2, 1, "datum", "Datum", Type.INPUT)
+        )).when(jdbcTemplate).query(anyString(), any(Object[].class), any(RowMapper.class));
+
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class), eq("TestForm"), eq(0), eq(500))).thenReturn(List.of(1, 2));
+
+        var datum = mock(Item.class);
+        doReturn("01.01.2023").when(datum).getValue();
+        var procedure = mock(Procedure.class);
+        when(procedure.getValue("datum")).thenReturn(datum);
+        when(onkostarApi.getProcedure(1)).thenReturn(procedure);
+        when(onkostarApi.getProcedure(2)).thenReturn(null);
+
+        var outputStream = new ByteArrayOutputStream();
+        var actual = service.exportFormInfos("TestForm", FormInfoOptions.DEFAULT, ExportFormat.NDJSON, outputStream);
+
+        assertThat(actual).isEqualTo(1);
+        assertThat(outputStream.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "{\"procedureId\":2,\"error\":\"No such procedure with ID '2'\"}\n"
+                        + "{\"procedureId\":1,\"content\":{\"datum\":\"01.01.2023\"}}\n"
+        );
+        verify(procedure, never()).getValue("section1");
+    }
+
+    @Test
+    void testShouldExportAllPagesFromDataCatalogueTables() {
+        var dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:export;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        var database = new JdbcTemplate(dataSource);
+        database.execute("CREATE TABLE data_form (id INT PRIMARY KEY, name VARCHAR(255))");
+        database.execute("CREATE TABLE data_form_entry (id INT PRIMARY KEY, data_form_id INT, name VARCHAR(255), " +
+                "description VARCHAR(255), type VARCHAR(64), element_parent_id INT, position INT, " +
+                "data_catalogue_entry_id INT, referenced_data_form_id INT)");
+        database.execute("CREATE TABLE data_catalogue (id INT PRIMARY KEY, name VARCHAR(255))");
+        database.execute("CREATE TABLE data_catalogue_entry (id INT PRIMARY KEY, data_catalogue_id INT, name VARCHAR(255))");
+        database.execute("CREATE TABLE prozedur (id INT PRIMARY KEY, hauptprozedur_id INT, data_form_id INT)");
+        database.execute("CREATE TABLE dk_testkatalog (id INT PRIMARY KEY, bemerkung VARCHAR(255))");
+        database.update("INSERT INTO data_form VALUES (1, 'TestForm'), (2, 'OtherForm')");
+        database.update("INSERT INTO data_catalogue VALUES (1, 'TestKatalog')");
+        database.update("INSERT INTO data_catalogue_entry VALUES (1, 1, 'Bemerkung')");
+        database.update("INSERT INTO data_form_entry VALUES (1, 1, 'bemerkung', 'Bemerkung', 'textarea', NULL, 1, 1, NULL)");
+        for (int procedureId = 1; procedureId <= 7; procedureId++) {
+            database.update("INSERT INTO prozedur VALUES (?, NULL, ?)", procedureId, procedureId == 4 ? 2 : 1);
+            database.update("INSERT INTO dk_testkatalog VALUES (?, ?)", procedureId, "Text " + procedureId);
+        }
+
+        var properties = new Properties();
+        properties.setProperty(FormInfoSettings.VALUE_SOURCE, "jdbc");
+        properties.setProperty(FormInfoSettings.EXPORT_PAGE_SIZE, "2");
+        var exportService = new DefaultFormInfoService(onkostarApi, database, new FormInfoMetrics(), new FormInfoSettings(properties));
+
+        try {
+            var outputStream = new ByteArrayOutputStream();
+            var actual = exportService.exportFormInfos("TestForm", FormInfoOptions.DEFAULT, ExportFormat.NDJSON, outputStream);
+
+            assertThat(actual).isEqualTo(6);
+            assertThat(outputStream.toString(StandardCharsets.UTF_8)).isEqualTo(
+                    "{\"procedureId\":1,\"content\":{\"bemerkung\":\"Text 1\"}}\n"
+                            + "{\"procedureId\":2,\"content\":{\"bemerkung\":\"Text 2\"}}\n"
+                            + "{\"procedureId\":3,\"content\":{\"bemerkung\":\"Text 3\"}}\n"
+                            + "{\"procedureId\":5,\"content\":{\"bemerkung\":\"Text 5\"}}\n"
+                            + "{\"procedureId\":6,\"content\":{\"bemerkung\":\"Text 6\"}}\n"
+                            + "{\"procedureId\":7,\"content\":{\"bemerkung\":\"Text 7\"}}\n"
+            );
+            verify(onkostarApi, never()).getProcedure(anyInt());
+        } finally {
+            exportService.destroy();
+            database.execute("DROP ALL OBJECTS");
+        }
+    }
+
+    @Test
+    void testShouldReturnIdenticalResultsFromJdbcAndApiValueSource() {
+        var properties = new Properties();
+        properties.setProperty(FormInfoSettings.VALUE_SOURCE, "jdbc");
+        var jdbcService = new DefaultFormInfoService(onkostarApi, jdbcTemplate, new FormInfoMetrics(), new FormInfoSettings(properties));
+
+        doAnswer(invocation -> List.of(
+                new FormDefinitionRepository.EntryRow(1, null, "section1", "Abschnitt", Type.SECTION),
+                new FormDefinitionRepository.EntryRow(2, 1, "diagnose", "Diagnose", Type.INPUT),
+                new FormDefinitionRepository.EntryRow(3, 1, "datum", "Datum", Type.INPUT),
+                new FormDefinitionRepository.EntryRow(4, 1, "bemerkung", "Bemerkung", Type.INPUT),
+                new FormDefinitionRepository.EntryRow(5, 1, "leer", "Leer", Type.INPUT)
+        )).when(jdbcTemplate).query(anyString(), any(Object[].class), any(RowMapper.class));
+        doAnswer(invocation -> {
+            var resultSet = mock(ResultSet.class);
+            when(resultSet.getString("property_version_id")).thenReturn("1");
+            when(resultSet.getString("code")).thenReturn("C34.1");
+            when(resultSet.getString("shortdesc")).thenReturn("Bronchialkarzinom");
+            invocation.getArgument(2, RowCallbackHandler.class).processRow(resultSet);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(Object[].class), any(RowCallbackHandler.class));
+
+        var date = new Date(1672570800000L);
+
+        // IOnkostarApi
+        var diagnose = mock(Item.class);
+        when(diagnose.getPropertyCatalogueVersion()).thenReturn("1");
+        when(diagnose.getString()).thenReturn("C34.1");
+        var datum = mock(Item.class);
+        when(datum.getDate()).thenReturn(date);
+        var bemerkung = mock(Item.class);
+        doReturn("Text").when(bemerkung).getValue();
+        var procedure = mock(Procedure.class);
+        when(procedure.getFormName()).thenReturn("TestForm");
+        when(procedure.getValue("diagnose")).thenReturn(diagnose);
+        when(procedure.getValue("datum")).thenReturn(datum);
+        when(procedure.getValue("bemerkung")).thenReturn(bemerkung);
+        when(onkostarApi.getProcedure(1)).thenReturn(procedure);
+
+        // JDBC
+        when(jdbcTemplate.queryForObject(anyString(), eq(String.class), eq(1))).thenReturn("TestForm");
+        doAnswer(invocation -> {
+            var handler = invocation.getArgument(1, RowCallbackHandler.class);
+            handler.processRow(columnRow("diagnose", "diagnose_propcat_version"));
+            handler.processRow(columnRow("datum", null));
+            handler.processRow(columnRow("bemerkung", null));
+            handler.processRow(columnRow("leer", null));
+            return null;
+        }).when(jdbcTemplate).query(contains("information_schema"), any(RowCallbackHandler.class), eq("TestForm"));
+        doAnswer(invocation -> {
+            var resultSet = mock(ResultSet.class);
+            when(resultSet.getObject(1)).thenReturn("C34.1");
+            when(resultSet.getString(2)).thenReturn("1");
+            when(resultSet.getObject(3)).thenReturn(new java.sql.Date(date.getTime()));
+            when(resultSet.getObject(4)).thenReturn("Text");
+            when(resultSet.getObject(5)).thenReturn(null);
+            invocation.getArgument(1, RowCallbackHandler.class).processRow(resultSet);
+            return null;
+        }).when(jdbcTemplate).query(
+                eq("SELECT diagnose, diagnose_propcat_version, datum, bemerkung, leer FROM dk_testkatalog WHERE id = ?"),
+                any(RowCallbackHandler.class),
+                eq(1)
+        );
+
+        var expected = service.getFormInfo(1);
+        var actual = jdbcService.getFormInfo(1);
+
+        assertThat(expected).hasSize(5);
+        assertThat(expected.get(1).value).isEqualTo("Bronchialkarzinom");
+        assertThat(actual).usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(expected);
+        verify(onkostarApi, times(1)).getProcedure(1);
+        jdbcService.destroy();
+    }
+
+    private static ResultSet columnRow(String name, String versionColumn) throws Exception {
+        var resultSet = mock(ResultSet.class);
+        when(resultSet.getString("field_name")).thenReturn(name);
+        when(resultSet.getString("catalogue_name")).thenReturn("testkatalog");
+        when(resultSet.getString("column_name")).thenReturn(name);
+        when(resultSet.getString("version_column")).thenReturn(versionColumn);
+        return resultSet;
+    }
+
+    @Test
+    void testShouldReturnValuesAlignedToSchema() {
+        var procedure = mock(Procedure.class);
+        when(procedure.getFormName()).thenReturn("TestForm");
+        when(onkostarApi.getProcedure(1)).thenReturn(procedure);
+        doAnswer(invocation -> List.of(
+                new FormDefinitionRepository.EntryRow(1, null, "section1", "Abschnitt", Type.SECTION),
+                new FormDefinitionRepository.EntryRow(2, 1, "datum", "Datum", Type.INPUT),
+                new FormDefinitionRepository.EntryRow(3, 1, "ref", "Formularverweis", Type.FORM_REFERENCE),
+                new FormDefinitionRepository.EntryRow(4, 1, "bemerkung", "Bemerkung", Type.INPUT)
+        )).when(jdbcTemplate).query(anyString(), any(Object[].class), any(RowMapper.class));
+
+        var bemerkung = mock(Item.class);
+        doReturn("Text").when(bemerkung).getValue();
+        when(procedure.getValue("datum")).thenReturn(null);
+        when(procedure.getValue("bemerkung")).thenReturn(bemerkung);
+
+        var schema = service.getFormSchema("TestForm");
+        var actual = service.getFormInfoValues(1, FormInfoOptions.builder()
+                .excludeTypes(List.of(Type.FORM_REFERENCE))
+                .skipEmptyValues(true)
+                .build());
+
+        assertThat(schema.fields).extracting(field -> field.field).containsExactly("section1", "datum", "ref", "bemerkung");
+        assertThat(actual.formName).isEqualTo("TestForm");
+        assertThat(actual.schemaVersion).isEqualTo(schema.version);
+        assertThat(actual.values).containsExactly(null, null, null, "Text");
+        verify(procedure, never()).getValue("ref");
+    }
+
+    private Procedure mockSectionForm() {
+        var procedure = mock(Procedure.class);
+        when(procedure.getFormName()).thenReturn("TestForm");
+        when(onkostarApi.getProcedure(1)).thenReturn(procedure);
+        doAnswer(invocation -> List.of(
+                new FormDefinitionRepository.EntryRow(1, null, "datum", "Datum", Type.INPUT),
+                new FormDefinitionRepository.EntryRow(2, null, "section1", "Abschnitt", Type.SECTION),
+                new FormDefinitionRepository.EntryRow(3, 2, "bemerkung", "Bemerkung", Type.INPUT),
+                new FormDefinitionRepository.EntryRow(4, 2, "group1", "Gruppe", Type.GROUP),
+                new FormDefinitionRepository.EntryRow(5, 4, "dosis", "Dosis", Type.INPUT)
+        )).when(jdbcTemplate).query(anyString(), any(Object[].class), any(RowMapper.class));
+        return procedure;
+    }
+
+    @Test
+    void testShouldOnlyResolveTopLevelFieldsOfTree() {
+        var procedure = mockSectionForm();
+        var datum = mock(Item.class);
+        doReturn("01.01.2023").when(datum).getValue();
+        when(procedure.getValue("datum")).thenReturn(datum);
+
+        var actual = service.getFormInfoTree(1, FormInfoOptions.DEFAULT, 0);
+
+        assertThat(actual).extracting(result -> result.field).containsExactly("datum", "section1");
+        assertThat(actual.get(0).value).isEqualTo("01.01.2023");
+        var section = (ContentNode) actual.get(1);
+        assertThat(section.loaded).isFalse();
+        assertThat(section.childCount).isEqualTo(2);
+        assertThat(section.children).isNull();
+        verify(procedure, never()).getValue("bemerkung");
+        verify(procedure, never()).getValue("dosis");
+    }
+
+    @Test
+    void testShouldLoadSectionOnDemand() {
+        var procedure = mockSectionForm();
+        var bemerkung = mock(Item.class);
+        doReturn("Text").when(bemerkung).getValue();
+        when(procedure.getValue("bemerkung")).thenReturn(bemerkung);
+
+        var actual = service.getFormInfoSection(1, "section1", FormInfoOptions.DEFAULT, 1);
+
+        assertThat(actual.loaded).isTrue();
+        assertThat(actual.children).extracting(result -> result.field).containsExactly("bemerkung", "group1");
+        assertThat(actual.children.get(0).value).isEqualTo("Text");
+        assertThat(((ContentNode) actual.children.get(1)).loaded).isFalse();
+        verify(procedure, never()).getValue("datum");
+        verify(procedure, never()).getValue("dosis");
+    }
+
+    @Test
+    void testShouldThrowExceptionIfSectionDoesNotExist() {
+        mockSectionForm();
+
+        assertThrows(FormInfoException.class, () -> service.getFormInfoSection(1, "unknown", FormInfoOptions.DEFAULT, 1));
+        assertThrows(FormInfoException.class, () -> service.getFormInfoSection(1, "datum", FormInfoOptions.DEFAULT, 1));
+    }
+
+    @Test
+    void testShouldChangeSchemaVersionIfDescriptionChanges() {
+        var first = new FormDefinition("TestForm", List.of(new DefaultFormInfoService.Entry("datum", "Datum", Type.INPUT)));
+        var second = new FormDefinition("TestForm", List.of(new DefaultFormInfoService.Entry("datum", "Datum der Vorstellung", Type.INPUT)));
+
+        assertThat(first.schemaVersion).isNotEqualTo(second.schemaVersion);
+        assertThat(first.schemaVersion)
+                .isEqualTo(new FormDefinition("TestForm", List.of(new DefaultFormInfoService.Entry("datum", "Datum", Type.INPUT))).schemaVersion);
+    }
+
 }
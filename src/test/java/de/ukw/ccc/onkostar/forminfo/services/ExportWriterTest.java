@@ -0,0 +1,110 @@
+package de.ukw.ccc.onkostar.forminfo.services;
+
+import de.ukw.ccc.onkostar.forminfo.ExportFormat;
+import de.ukw.ccc.onkostar.forminfo.Result;
+import de.ukw.ccc.onkostar.forminfo.Type;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExportWriterTest {
+
+    private static final FieldDescriptor[] FIELDS = {
+            new FieldDescriptor("datum", "Datum", Type.INPUT),
+            new FieldDescriptor("bemerkung", "Bemerkung", Type.INPUT)
+    };
+
+    private static final List<Result> CONTENT = List.of(
+            new Result("datum", "Datum", "01.01.2023", Type.INPUT),
+            new Result("bemerkung", "Bemerkung", "Text mit \"Anführungszeichen\",\nKomma und Zeilenumbruch", Type.INPUT)
+    );
+
+    @Test
+    void testShouldWriteNdjsonLines() throws Exception {
+        var target = new StringWriter();
+        var writer = ExportWriter.create(ExportFormat.NDJSON, target, FIELDS, false);
+
+        writer.writeHeader();
+        writer.write(1, CONTENT);
+        writer.writeError(2, "No such procedure with ID '2'");
+        writer.flush();
+
+        assertThat(target.toString()).isEqualTo(
+                "{\"procedureId\":1,\"content\":{\"datum\":\"01.01.2023\",\"bemerkung\":\"Text mit \\\"Anführungszeichen\\\",\\nKomma und Zeilenumbruch\"}}\n"
+                        + "{\"procedureId\":2,\"error\":\"No such procedure with ID '2'\"}\n"
+        );
+    }
+
+    @Test
+    void testShouldSkipEmptyValuesInNdjson() throws Exception {
+        var target = new StringWriter();
+        var writer = ExportWriter.create(ExportFormat.NDJSON, target, FIELDS, true);
+
+        writer.write(1, List.of(
+                new Result("datum", "Datum", null, Type.INPUT),
+                new Result("bemerkung", "Bemerkung", 42, Type.INPUT)
+        ));
+        writer.flush();
+
+        assertThat(target.toString()).isEqualTo("{\"procedureId\":1,\"content\":{\"bemerkung\":42}}\n");
+    }
+
+    @Test
+    void testShouldWriteListValues() throws Exception {
+        var content = List.of(
+                new Result("datum", "Datum", null, Type.INPUT),
+                new Result("bemerkung", "Bemerkung", List.of("Eintrag A", "Eintrag B"), Type.INPUT)
+        );
+        var ndjson = new StringWriter();
+        var csv = new StringWriter();
+
+        var ndjsonWriter = ExportWriter.create(ExportFormat.NDJSON, ndjson, FIELDS, true);
+        ndjsonWriter.write(1, content);
+        ndjsonWriter.flush();
+        var csvWriter = ExportWriter.create(ExportFormat.CSV, csv, FIELDS, false);
+        csvWriter.write(1, content);
+        csvWriter.flush();
+
+        assertThat(ndjson.toString()).isEqualTo("{\"procedureId\":1,\"content\":{\"bemerkung\":[\"Eintrag A\",\"Eintrag B\"]}}\n");
+        assertThat(csv.toString()).isEqualTo("1,,Eintrag A; Eintrag B,\r\n");
+    }
+
+    @Test
+    void testShouldWriteMapValuesAsJsonObjects() throws Exception {
+        var target = new StringWriter();
+        var writer = ExportWriter.create(ExportFormat.NDJSON, target, FIELDS, true);
+
+        var value = new LinkedHashMap<String, Object>();
+        value.put("id", 10);
+        value.put("name", "Text mit \"Anführungszeichen\"");
+        value.put("codes", List.of("A", "B"));
+        writer.write(1, List.of(new Result("bemerkung", "Bemerkung", value, Type.INPUT)));
+        writer.flush();
+
+        assertThat(target.toString()).isEqualTo(
+                "{\"procedureId\":1,\"content\":{\"bemerkung\":{\"id\":10,\"name\":\"Text mit \\\"Anführungszeichen\\\"\",\"codes\":[\"A\",\"B\"]}}}\n"
+        );
+    }
+
+    @Test
+    void testShouldWriteCsvRows() throws Exception {
+        var target = new StringWriter();
+        var writer = ExportWriter.create(ExportFormat.CSV, target, FIELDS, false);
+
+        writer.writeHeader();
+        writer.write(1, CONTENT);
+        writer.writeError(2, "No such procedure with ID '2'");
+        writer.flush();
+
+        assertThat(target.toString()).isEqualTo(
+                "procedureId,datum,bemerkung,error\r\n"
+                        + "1,01.01.2023,\"Text mit \"\"Anführungszeichen\"\",\nKomma und Zeilenumbruch\",\r\n"
+                        + "2,,,No such procedure with ID '2'\r\n"
+        );
+    }
+
+}
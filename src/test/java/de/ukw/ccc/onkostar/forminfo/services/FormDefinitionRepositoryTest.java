@@ -0,0 +1,159 @@
+package de.ukw.ccc.onkostar.forminfo.services;
+
+import de.ukw.ccc.onkostar.forminfo.Type;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalMatchers.not;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class FormDefinitionRepositoryTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testShouldBuildEntryTreeFromParentIds() {
+        var actual = FormDefinitionRepository.buildEntryTree(List.of(
+                new FormDefinitionRepository.EntryRow(1, null, "datum", "Datum", Type.INPUT),
+                new FormDefinitionRepository.EntryRow(2, null, "group1", "Feldgruppe1", Type.GROUP),
+                new FormDefinitionRepository.EntryRow(3, 2, "startdate", "Datum des Beginns", Type.INPUT),
+                new FormDefinitionRepository.EntryRow(4, 2, "enddate", "Datum des Endes", Type.INPUT),
+                new FormDefinitionRepository.EntryRow(5, 42, "orphan", "Ohne Elternelement", Type.INPUT)
+        ));
+
+        assertThat(actual).hasSize(2);
+        assertThat(actual.get(0).name).isEqualTo("datum");
+        assertThat(actual.get(0).children).isEmpty();
+        assertThat(actual.get(1).name).isEqualTo("group1");
+        assertThat(actual.get(1).children).hasSize(2);
+        assertThat(actual.get(1).children.get(0).name).isEqualTo("startdate");
+        assertThat(actual.get(1).children.get(1).name).isEqualTo("enddate");
+    }
+
+    @Test
+    void testShouldLoadFormDefinitionOnlyOnce() {
+        doAnswer(invocation -> List.of()).when(jdbcTemplate).query(anyString(), any(Object[].class), any(RowMapper.class));
+
+        var repository = new FormDefinitionRepository(jdbcTemplate, new FormInfoSettings(new Properties()));
+        repository.get("TestForm");
+        repository.get("TestForm");
+
+        verify(jdbcTemplate, times(1)).query(anyString(), any(Object[].class), any(RowMapper.class));
+    }
+
+    @Test
+    void testShouldCompileFieldsInFormOrder() {
+        var actual = new FormDefinition("TestForm", List.of(
+                new DefaultFormInfoService.Entry("datum", "Datum", Type.INPUT),
+                new DefaultFormInfoService.Entry("group1", "Feldgruppe1", Type.GROUP, List.of(
+                        new DefaultFormInfoService.Entry("startdate", "Datum des Beginns", Type.INPUT)
+                ))
+        )).fields;
+
+        assertThat(actual).hasSize(3);
+        assertThat(actual[0].name).isEqualTo("datum");
+        assertThat(actual[0].strategy).isEqualTo(FieldDescriptor.ValueStrategy.VALUE);
+        assertThat(actual[1].name).isEqualTo("group1");
+        assertThat(actual[1].strategy).isEqualTo(FieldDescriptor.ValueStrategy.NONE);
+        assertThat(actual[2].name).isEqualTo("startdate");
+    }
+
+    @Test
+    void testShouldReloadFormDefinitionOnVersionChange() {
+        doReturn(version(1)).doReturn(version(1)).doReturn(version(2))
+                .when(jdbcTemplate).queryForMap(anyString(), eq("TestForm"));
+        doAnswer(invocation -> List.of(new FormDefinitionRepository.EntryRow(1, null, "datum", "Datum", Type.INPUT)))
+                .doAnswer(invocation -> List.of(new FormDefinitionRepository.EntryRow(1, null, "datum", "Datum der Diagnose", Type.INPUT)))
+                .when(jdbcTemplate).query(anyString(), any(Object[].class), any(RowMapper.class));
+
+        var properties = new Properties();
+        properties.setProperty(FormInfoSettings.FORM_CACHE_VERSION_CHECK_INTERVAL, "0");
+        var repository = new FormDefinitionRepository(jdbcTemplate, new FormInfoSettings(properties));
+
+        var first = repository.get("TestForm");
+        var second = repository.get("TestForm");
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.version).isEqualTo("1:2");
+        assertThat(second.fields[0].description).isEqualTo("Datum der Diagnose");
+        verify(jdbcTemplate, times(2)).query(anyString(), any(Object[].class), any(RowMapper.class));
+    }
+
+    @Test
+    void testShouldOnlyQueryVersionIfVersionNotChanged() {
+        doReturn(version(1)).when(jdbcTemplate).queryForMap(anyString(), eq("TestForm"));
+        doAnswer(invocation -> List.of(new FormDefinitionRepository.EntryRow(1, null, "datum", "Datum", Type.INPUT)))
+                .when(jdbcTemplate).query(anyString(), any(Object[].class), any(RowMapper.class));
+
+        var properties = new Properties();
+        properties.setProperty(FormInfoSettings.FORM_CACHE_VERSION_CHECK_INTERVAL, "0");
+        var repository = new FormDefinitionRepository(jdbcTemplate, new FormInfoSettings(properties));
+
+        var first = repository.get("TestForm");
+        var second = repository.get("TestForm");
+
+        assertThat(second).isSameAs(first);
+        verify(jdbcTemplate, times(1)).query(anyString(), any(Object[].class), any(RowMapper.class));
+        verify(jdbcTemplate, times(3)).queryForMap(anyString(), eq("TestForm"));
+    }
+
+    @Test
+    void testShouldIncludeSubFormTargetsInVersion() {
+        doReturn(version(1)).when(jdbcTemplate).queryForMap(contains("sub_form_targets"), eq("TestForm"));
+        doAnswer(invocation -> List.of()).when(jdbcTemplate).query(anyString(), any(Object[].class), any(RowMapper.class));
+
+        var repository = new FormDefinitionRepository(jdbcTemplate, new FormInfoSettings(new Properties()));
+        repository.get("TestForm");
+
+        verify(jdbcTemplate, times(1)).queryForMap(contains("dfe.referenced_data_form_id"), eq("TestForm"));
+    }
+
+    @Test
+    void testShouldUseVersionWithoutSubFormTargetsIfReferenceColumnIsMissing() {
+        doThrow(new BadSqlGrammarException("version", "SELECT", new SQLException()))
+                .when(jdbcTemplate).queryForMap(contains("sub_form_targets"), eq("TestForm"));
+        doReturn(version(1)).when(jdbcTemplate).queryForMap(not(contains("sub_form_targets")), eq("TestForm"));
+        doAnswer(invocation -> List.of()).when(jdbcTemplate).query(anyString(), any(Object[].class), any(RowMapper.class));
+
+        var properties = new Properties();
+        properties.setProperty(FormInfoSettings.FORM_CACHE_VERSION_CHECK_INTERVAL, "0");
+        var repository = new FormDefinitionRepository(jdbcTemplate, new FormInfoSettings(properties));
+
+        var first = repository.get("TestForm");
+        var second = repository.get("TestForm");
+
+        assertThat(first.version).isEqualTo("1:1");
+        assertThat(second).isSameAs(first);
+        verify(jdbcTemplate, times(1)).queryForMap(contains("sub_form_targets"), eq("TestForm"));
+    }
+
+    private static Map<String, Object> version(int maxId) {
+        var result = new LinkedHashMap<String, Object>();
+        result.put("entries", 1);
+        result.put("max_id", maxId);
+        return result;
+    }
+
+}
@@ -0,0 +1,74 @@
+package de.ukw.ccc.onkostar.forminfo.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FormInfoExecutorTest {
+
+    private FormInfoExecutor executor;
+
+    @BeforeEach
+    void setup() {
+        this.executor = new FormInfoExecutor(1, 1, Duration.ZERO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.executor.shutdown();
+    }
+
+    @Test
+    void testShouldExecuteSupplier() throws Exception {
+        var actual = executor.submit(() -> 42);
+
+        assertThat(actual.get(1, TimeUnit.SECONDS)).isEqualTo(42);
+    }
+
+    @Test
+    void testShouldRejectTasksIfQueueIsFull() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+
+        var running = executor.submit(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 1;
+        });
+        started.await(1, TimeUnit.SECONDS);
+        var queued = executor.submit(() -> 2);
+        var rejected = executor.submit(() -> 3);
+
+        assertThat(executor.getQueueSize()).isEqualTo(1);
+        var exception = assertThrows(ExecutionException.class, rejected::get);
+        assertThat(exception.getCause()).isInstanceOf(RejectedExecutionException.class);
+
+        release.countDown();
+        assertThat(running.get(1, TimeUnit.SECONDS)).isEqualTo(1);
+        assertThat(queued.get(1, TimeUnit.SECONDS)).isEqualTo(2);
+    }
+
+    @Test
+    void testShouldCompleteExceptionallyOnError() {
+        var actual = executor.submit(() -> {
+            throw new IllegalStateException("Test");
+        });
+
+        var exception = assertThrows(ExecutionException.class, actual::get);
+        assertThat(exception.getCause()).isInstanceOf(IllegalStateException.class);
+    }
+
+}
@@ -0,0 +1,59 @@
+package de.ukw.ccc.onkostar.forminfo.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FormInfoMetricsTest {
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> methodStats(FormInfoMetrics metrics, String name) {
+        var methods = (Map<String, Object>) metrics.getStats().get("methods");
+        return (Map<String, Object>) methods.get(name);
+    }
+
+    @Test
+    void testShouldRecordCallsErrorsAndSqlStatements() {
+        var metrics = new FormInfoMetrics();
+
+        metrics.timed("test", () -> {
+            metrics.countSqlStatement();
+            metrics.countSqlStatement();
+            return List.of(1, 2, 3);
+        }, List::size);
+        assertThrows(IllegalStateException.class, () -> metrics.timed("test", () -> {
+            throw new IllegalStateException();
+        }, result -> 1));
+
+        var actual = methodStats(metrics, "test");
+        assertThat(actual.get("calls")).isEqualTo(2L);
+        assertThat(actual.get("errors")).isEqualTo(1L);
+        assertThat(actual.get("maxSqlStatements")).isEqualTo(2L);
+        assertThat(actual.get("meanResultSize")).isEqualTo(1.5);
+    }
+
+    @Test
+    void testShouldRecordCacheHitsAndResetStats() {
+        var metrics = new FormInfoMetrics();
+        var cache = new LruCache<String, String>(10);
+        metrics.registerCache("test", cache);
+
+        cache.get("key");
+        cache.put("key", "value");
+        cache.get("key");
+
+        @SuppressWarnings("unchecked")
+        var cacheStats = (Map<String, Object>) ((Map<String, Object>) metrics.getStats().get("caches")).get("test");
+        assertThat(cacheStats.get("hits")).isEqualTo(1L);
+        assertThat(cacheStats.get("misses")).isEqualTo(1L);
+
+        metrics.reset();
+        assertThat(cache.getHits()).isZero();
+        assertThat(methodStats(metrics, "test")).isNull();
+    }
+
+}
@@ -0,0 +1,124 @@
+package de.ukw.ccc.onkostar.forminfo.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ProcedureHierarchyIndexTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private ProcedureHierarchyIndex loadIndex() throws Exception {
+        var properties = new Properties();
+        properties.setProperty(FormInfoSettings.HIERARCHY_INDEX_ENABLED, "true");
+
+        var resultSet = mock(ResultSet.class);
+        when(resultSet.getInt("id")).thenReturn(1, 2, 3, 4);
+        when(resultSet.getInt("hauptprozedur_id")).thenReturn(0, 1, 1, 2);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (int i = 0; i < 4; i++) {
+                handler.processRow(resultSet);
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        var index = new ProcedureHierarchyIndex(jdbcTemplate, new FormInfoSettings(properties), 100);
+        index.load();
+        return index;
+    }
+
+    @Test
+    void testShouldAnswerFromLoadedIndex() throws Exception {
+        var index = loadIndex();
+
+        assertThat(index.getState()).isEqualTo(ProcedureHierarchyIndex.State.READY);
+        assertThat(index.getParentId(1)).isEqualTo(ProcedureHierarchyIndex.NO_PARENT);
+        assertThat(index.getParentId(4)).isEqualTo(2);
+        assertThat(index.getChildIds(1)).containsExactly(2, 3);
+        assertThat(index.getChildIds(4)).isEmpty();
+        assertThat(index.getParentId(5)).isEqualTo(ProcedureHierarchyIndex.UNKNOWN);
+        assertThat(index.getChildIds(5)).isNull();
+    }
+
+    @Test
+    void testShouldUpdateChangedProcedure() throws Exception {
+        var index = loadIndex();
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class), eq(4))).thenReturn(List.of(3));
+
+        index.update(4);
+
+        assertThat(index.getParentId(4)).isEqualTo(3);
+        assertThat(index.getChildIds(2)).isEmpty();
+        assertThat(index.getChildIds(3)).containsExactly(4);
+    }
+
+    @Test
+    void testShouldRemoveDeletedProcedure() throws Exception {
+        var index = loadIndex();
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class), eq(3))).thenReturn(List.of());
+
+        index.update(3);
+
+        assertThat(index.getParentId(3)).isEqualTo(ProcedureHierarchyIndex.UNKNOWN);
+        assertThat(index.getChildIds(1)).containsExactly(2);
+    }
+
+    @Test
+    void testShouldUpdateProcedureWithoutMainForm() throws Exception {
+        var index = loadIndex();
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class), eq(2))).thenReturn(Collections.singletonList(null));
+
+        index.update(2);
+
+        assertThat(index.getParentId(2)).isEqualTo(ProcedureHierarchyIndex.NO_PARENT);
+        assertThat(index.getChildIds(1)).containsExactly(3);
+    }
+
+    @Test
+    void testShouldNotAnswerIfDisabled() {
+        var index = new ProcedureHierarchyIndex(jdbcTemplate, new FormInfoSettings(new Properties()), 100);
+        index.update(1);
+
+        assertThat(index.isEnabled()).isFalse();
+        assertThat(index.getParentId(1)).isEqualTo(ProcedureHierarchyIndex.UNKNOWN);
+        assertThat(index.getChildIds(1)).isNull();
+    }
+
+    @Test
+    void testShouldKeepTableConsistentAfterManyChanges() {
+        var table = new ProcedureHierarchyIndex.ProcedureTable(16);
+        for (int id = 1; id <= 10000; id++) {
+            table.put(id, id > 1 ? id / 2 : 0);
+        }
+        for (int id = 2; id <= 10000; id += 2) {
+            table.remove(id);
+        }
+
+        assertThat(table.getParent(1)).isEqualTo(0);
+        assertThat(table.getParent(9999)).isEqualTo(4999);
+        assertThat(table.getParent(5000)).isEqualTo(ProcedureHierarchyIndex.UNKNOWN);
+        assertThat(table.getChildren(1)).containsExactly(3);
+        assertThat(table.getChildren(2499)).containsExactly(4999);
+    }
+
+}
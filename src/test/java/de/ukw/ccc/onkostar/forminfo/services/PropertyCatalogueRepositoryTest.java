@@ -0,0 +1,75 @@
+package de.ukw.ccc.onkostar.forminfo.services;
+
+import de.ukw.ccc.onkostar.forminfo.services.PropertyCatalogueRepository.CatalogueKey;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class PropertyCatalogueRepositoryTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testShouldResolveAllKeysWithOneQueryAndUseCache() throws Exception {
+        doAnswer(invocation -> {
+            var resultSet = mock(ResultSet.class);
+            when(resultSet.getString("property_version_id")).thenReturn("1");
+            when(resultSet.getString("code")).thenReturn("A");
+            when(resultSet.getString("shortdesc")).thenReturn("Eintrag A");
+            invocation.getArgument(2, RowCallbackHandler.class).processRow(resultSet);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(Object[].class), any(RowCallbackHandler.class));
+
+        var repository = new PropertyCatalogueRepository(jdbcTemplate, new FormInfoSettings(new Properties()));
+        var keys = List.of(new CatalogueKey("1", "A"), new CatalogueKey("1", "B"));
+
+        var actual = repository.getShortDescriptions(keys);
+        var cached = repository.getShortDescriptions(keys);
+
+        assertThat(actual).hasSize(1).containsEntry(new CatalogueKey("1", "A"), "Eintrag A");
+        assertThat(cached).isEqualTo(actual);
+        verify(jdbcTemplate, times(1)).query(anyString(), any(Object[].class), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    void testShouldPrewarmCacheWithoutChangingStatistics() throws Exception {
+        doAnswer(invocation -> {
+            var resultSet = mock(ResultSet.class);
+            when(resultSet.getString("property_version_id")).thenReturn("1");
+            when(resultSet.getString("code")).thenReturn("A");
+            when(resultSet.getString("shortdesc")).thenReturn("Eintrag A");
+            invocation.getArgument(2, RowCallbackHandler.class).processRow(resultSet);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(Object[].class), any(RowCallbackHandler.class));
+
+        var repository = new PropertyCatalogueRepository(jdbcTemplate, new FormInfoSettings(new Properties()));
+        var keys = List.of(new CatalogueKey("1", "A"), new CatalogueKey("1", "B"));
+
+        repository.prewarm(keys);
+        repository.prewarm(keys);
+
+        assertThat(repository.getCache().getHits()).isZero();
+        assertThat(repository.getCache().getMisses()).isZero();
+        assertThat(repository.getShortDescriptions(keys)).hasSize(1).containsEntry(new CatalogueKey("1", "A"), "Eintrag A");
+        verify(jdbcTemplate, times(1)).query(anyString(), any(Object[].class), any(RowCallbackHandler.class));
+    }
+
+}
@@ -0,0 +1,106 @@
+package de.ukw.ccc.onkostar.forminfo.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SingleFlightTest {
+
+    private SingleFlight<String> singleFlight;
+
+    private ExecutorService executorService;
+
+    @BeforeEach
+    void setup() {
+        this.singleFlight = new SingleFlight<>();
+        this.executorService = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.executorService.shutdownNow();
+    }
+
+    @Test
+    void testShouldShareResultOfInFlightCall() throws Exception {
+        var executions = new AtomicInteger();
+        var release = new CountDownLatch(1);
+
+        var first = CompletableFuture.supplyAsync(() -> singleFlight.execute("key", () -> {
+            executions.incrementAndGet();
+            await(release);
+            return 42;
+        }), executorService);
+        waitForInFlightCalls(1);
+        var second = CompletableFuture.supplyAsync(() -> singleFlight.execute("key", () -> {
+            executions.incrementAndGet();
+            return 0;
+        }), executorService);
+        waitForCoalescedCalls(1);
+
+        release.countDown();
+
+        assertThat(first.get(1, TimeUnit.SECONDS)).isEqualTo(42);
+        assertThat(second.get(1, TimeUnit.SECONDS)).isEqualTo(42);
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(singleFlight.getInFlightCount()).isZero();
+    }
+
+    @Test
+    void testShouldPassErrorToAllWaitersWithoutPoisoningLaterCalls() throws Exception {
+        var release = new CountDownLatch(1);
+
+        var first = CompletableFuture.supplyAsync(() -> singleFlight.<Integer>execute("key", () -> {
+            await(release);
+            throw new IllegalStateException("Test");
+        }), executorService);
+        waitForInFlightCalls(1);
+        var second = CompletableFuture.supplyAsync(() -> singleFlight.execute("key", () -> 0), executorService);
+        waitForCoalescedCalls(1);
+
+        release.countDown();
+
+        assertThat(assertThrows(ExecutionException.class, first::get).getCause()).isInstanceOf(IllegalStateException.class);
+        assertThat(assertThrows(ExecutionException.class, second::get).getCause()).isInstanceOf(IllegalStateException.class);
+        assertThat(singleFlight.execute("key", () -> 42)).isEqualTo(42);
+    }
+
+    @Test
+    void testShouldNotShareResultsOfDifferentKeys() {
+        assertThat(singleFlight.execute("key1", () -> 1)).isEqualTo(1);
+        assertThat(singleFlight.execute("key2", () -> 2)).isEqualTo(2);
+        assertThat(singleFlight.getStatus()).containsEntry("executed", 2L).containsEntry("coalesced", 0L);
+    }
+
+    private void waitForInFlightCalls(int count) throws InterruptedException {
+        for (int i = 0; i < 100 && singleFlight.getInFlightCount() < count; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    private void waitForCoalescedCalls(long count) throws InterruptedException {
+        for (int i = 0; i < 100 && (long) singleFlight.getStatus().get("coalesced") < count; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
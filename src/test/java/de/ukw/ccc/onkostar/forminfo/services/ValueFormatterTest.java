@@ -0,0 +1,98 @@
+package de.ukw.ccc.onkostar.forminfo.services;
+
+import de.ukw.ccc.onkostar.forminfo.Type;
+import de.ukw.ccc.onkostar.forminfo.services.PropertyCatalogueRepository.CatalogueKey;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ValueFormatterTest {
+
+    @Test
+    void testShouldSelectFormatterByDataType() {
+        assertThat(ValueFormatter.from(Type.INPUT, "date")).isEqualTo(ValueFormatter.DATE);
+        assertThat(ValueFormatter.from(Type.INPUT, "number")).isEqualTo(ValueFormatter.NUMBER);
+        assertThat(ValueFormatter.from(Type.INPUT, "checkbox")).isEqualTo(ValueFormatter.BOOLEAN);
+        assertThat(ValueFormatter.from(Type.INPUT, "textarea")).isEqualTo(ValueFormatter.AUTO);
+        assertThat(ValueFormatter.from(Type.INPUT, null)).isEqualTo(ValueFormatter.AUTO);
+        assertThat(ValueFormatter.from(Type.FORM_REFERENCE, "formReference")).isEqualTo(ValueFormatter.REFERENCE);
+    }
+
+    @Test
+    void testShouldNotSelectFormatterByPartOfDataType() {
+        assertThat(ValueFormatter.from(Type.INPUT, "updatetext")).isEqualTo(ValueFormatter.AUTO);
+        assertThat(ValueFormatter.from(Type.INPUT, "phonenumber")).isEqualTo(ValueFormatter.AUTO);
+        assertThat(ValueFormatter.from(Type.INPUT, "checkboxlist")).isEqualTo(ValueFormatter.AUTO);
+    }
+
+    @Test
+    void testShouldFormatDates() {
+        var date = Date.from(LocalDate.of(2023, 1, 31).atStartOfDay(ZoneId.systemDefault()).toInstant());
+
+        assertThat(ValueFormatter.AUTO.format(new FieldValue(date, null, date, null), Map.of())).isEqualTo("31.01.2023");
+        assertThat(ValueFormatter.DATE.format(new FieldValue("2023-01-31", null, null, null), Map.of())).isEqualTo("31.01.2023");
+        assertThat(ValueFormatter.DATE.format(new FieldValue("2023-01-31T10:15:00", null, null, null), Map.of())).isEqualTo("31.01.2023");
+        assertThat(ValueFormatter.DATE.format(new FieldValue("kein Datum", null, null, null), Map.of())).isEqualTo("kein Datum");
+    }
+
+    @Test
+    void testShouldFormatDatesWithOffsetLikeDates() {
+        var instant = Instant.parse("2023-01-05T23:30:00Z");
+
+        assertThat(ValueFormatter.DATE.format(new FieldValue("2023-01-05T23:30:00Z", null, null, null), Map.of()))
+                .isEqualTo(ValueFormatter.formatDate(Date.from(instant)));
+        assertThat(ValueFormatter.DATE.format(new FieldValue("2023-01-06T00:30:00+01:00", null, null, null), Map.of()))
+                .isEqualTo(ValueFormatter.formatDate(Date.from(instant)));
+    }
+
+    @Test
+    void testShouldFormatNumbersCompact() {
+        assertThat(ValueFormatter.AUTO.format(new FieldValue(42.0, null, null, null), Map.of())).isEqualTo(42);
+        assertThat(ValueFormatter.AUTO.format(new FieldValue(new BigDecimal("1.50"), null, null, null), Map.of())).isEqualTo(1.5);
+        assertThat(ValueFormatter.NUMBER.format(new FieldValue(12.0, null, null, null), Map.of())).isEqualTo(12);
+        assertThat(ValueFormatter.NUMBER.format(new FieldValue("42", null, null, null), Map.of())).isEqualTo(42);
+        assertThat(ValueFormatter.NUMBER.format(new FieldValue("1.5", null, null, null), Map.of())).isEqualTo(1.5);
+        assertThat(ValueFormatter.NUMBER.format(new FieldValue("n/a", null, null, null), Map.of())).isEqualTo("n/a");
+    }
+
+    @Test
+    void testShouldNotChangeNumericStrings() {
+        assertThat(ValueFormatter.NUMBER.format(new FieldValue("1.000", null, null, null), Map.of())).isEqualTo("1.000");
+        assertThat(ValueFormatter.NUMBER.format(new FieldValue("007", null, null, null), Map.of())).isEqualTo("007");
+        assertThat(ValueFormatter.NUMBER.format(new FieldValue("1e3", null, null, null), Map.of())).isEqualTo("1e3");
+        assertThat(ValueFormatter.NUMBER.format(new FieldValue("12,0", null, null, null), Map.of())).isEqualTo("12,0");
+        assertThat(ValueFormatter.NUMBER.format(new FieldValue(" 12", null, null, null), Map.of())).isEqualTo(" 12");
+    }
+
+    @Test
+    void testShouldFormatBooleans() {
+        assertThat(ValueFormatter.BOOLEAN.format(new FieldValue(1, null, null, null), Map.of())).isEqualTo(true);
+        assertThat(ValueFormatter.BOOLEAN.format(new FieldValue("false", null, null, null), Map.of())).isEqualTo(false);
+    }
+
+    @Test
+    void testShouldFormatCatalogueValues() {
+        var catalogueEntries = Map.of(
+                new CatalogueKey("1", "A"), "Eintrag A",
+                new CatalogueKey("1", "B"), "Eintrag B"
+        );
+
+        assertThat(ValueFormatter.AUTO.format(new FieldValue("A", "A", null, "1"), catalogueEntries)).isEqualTo("Eintrag A");
+        assertThat(ValueFormatter.AUTO.format(new FieldValue(List.of("A", "B", "C"), null, null, "1"), catalogueEntries))
+                .isEqualTo(List.of("Eintrag A", "Eintrag B", "C"));
+    }
+
+    @Test
+    void testShouldReturnNullForMissingValue() {
+        assertThat(ValueFormatter.AUTO.format(null, Map.of())).isNull();
+    }
+
+}